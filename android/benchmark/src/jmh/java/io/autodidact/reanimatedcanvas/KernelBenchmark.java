@@ -0,0 +1,189 @@
+package io.autodidact.reanimatedcanvas;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hot paths of a canvas holding `points` points: appending to a live stroke, rebuilding a stroke's path,
+ * simplifying, hit testing every stroke and (de)serializing.
+ * Strokes are seeded random walks so runs are comparable.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KernelBenchmark {
+
+    /**
+     * points per stroke of the hit test, a typical hand drawn stroke
+     */
+    private static final int STROKE_SIZE = 100;
+    private static final float HIT_SLOP = 10;
+    /**
+     * matches CompactPoints.QUANTIZATION
+     */
+    private static final float QUANTIZATION = 16;
+
+    @Param({"1000", "10000", "100000"})
+    public int points;
+
+    private float[] mStroke;
+    private float[][] mStrokes;
+    private float[][] mStrokeBounds;
+    private float[] mProbes;
+    private ByteBuffer mEncoded;
+    private ByteBuffer mBuffer;
+    private float[] mDecoded;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        mStroke = randomWalk(random, points);
+
+        int strokeCount = Math.max(1, points / STROKE_SIZE);
+        mStrokes = new float[strokeCount][];
+        mStrokeBounds = new float[strokeCount][];
+        for (int i = 0; i < strokeCount; i++) {
+            mStrokes[i] = randomWalk(random, STROKE_SIZE);
+            mStrokeBounds[i] = new float[4];
+            Geometry.computeBounds(mStrokes[i], STROKE_SIZE, mStrokeBounds[i]);
+        }
+        mProbes = new float[64];
+        for (int i = 0; i < mProbes.length; i++) {
+            mProbes[i] = random.nextFloat() * 1000;
+        }
+
+        mBuffer = ByteBuffer.allocate(points * PointCodec.MAX_POINT_SIZE);
+        mEncoded = ByteBuffer.allocate(points * PointCodec.MAX_POINT_SIZE);
+        PointCodec.encode(mStroke, points, QUANTIZATION, mEncoded);
+        mEncoded.flip();
+        mDecoded = new float[points * 2];
+    }
+
+    /**
+     * a walk across a 1000x1000 canvas in steps of up to 4px
+     */
+    private static float[] randomWalk(Random random, int count) {
+        float[] xy = new float[count * 2];
+        float x = random.nextFloat() * 1000, y = random.nextFloat() * 1000;
+        for (int i = 0; i < count; i++) {
+            x = Math.min(1000, Math.max(0, x + (random.nextFloat() - 0.5f) * 8));
+            y = Math.min(1000, Math.max(0, y + (random.nextFloat() - 0.5f) * 8));
+            xy[i * 2] = x;
+            xy[i * 2 + 1] = y;
+        }
+        return xy;
+    }
+
+    /**
+     * counts emitted segments so that emitting can't be eliminated
+     */
+    private static class CountingSink implements QuadSmoothing.Sink {
+        float checksum;
+
+        @Override
+        public void moveTo(float x, float y) {
+            checksum += x + y;
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            checksum += x + y;
+        }
+
+        @Override
+        public void quadTo(float x1, float y1, float x2, float y2) {
+            checksum += x1 + y1 + x2 + y2;
+        }
+    }
+
+    /**
+     * mirrors RPath.addPoint: grows the point storage, emits the new segment and extends the bounds
+     */
+    @Benchmark
+    public void append(Blackhole blackhole) {
+        float[] xy = new float[32];
+        CountingSink sink = new CountingSink();
+        float left = Float.MAX_VALUE, top = Float.MAX_VALUE, right = -Float.MAX_VALUE, bottom = -Float.MAX_VALUE;
+        for (int i = 0; i < points; i++) {
+            if (i * 2 == xy.length) {
+                xy = Arrays.copyOf(xy, xy.length * 2);
+            }
+            float x = mStroke[i * 2], y = mStroke[i * 2 + 1];
+            xy[i * 2] = x;
+            xy[i * 2 + 1] = y;
+            if (i >= 2) {
+                QuadSmoothing.emitSegment(xy[(i - 2) * 2], xy[(i - 2) * 2 + 1], xy[(i - 1) * 2], xy[(i - 1) * 2 + 1], x, y, sink);
+            }
+            left = Math.min(left, x);
+            top = Math.min(top, y);
+            right = Math.max(right, x);
+            bottom = Math.max(bottom, y);
+        }
+        blackhole.consume(sink.checksum);
+        blackhole.consume(left + top + right + bottom);
+    }
+
+    /**
+     * mirrors PathUtil.obtain, run on undo and when a compacted stroke is drawn
+     */
+    @Benchmark
+    public float rebuild() {
+        CountingSink sink = new CountingSink();
+        QuadSmoothing.emit(mStroke, points, sink);
+        return sink.checksum;
+    }
+
+    @Benchmark
+    public boolean[] simplify() {
+        return Geometry.simplify(mStroke, points, 1);
+    }
+
+    /**
+     * mirrors RCanvas.isPointOnPath over every stroke, probing a handful of points
+     */
+    @Benchmark
+    public void hitTest(Blackhole blackhole) {
+        for (int p = 0; p < mProbes.length; p += 2) {
+            float left = mProbes[p] - HIT_SLOP, top = mProbes[p + 1] - HIT_SLOP;
+            float right = mProbes[p] + HIT_SLOP, bottom = mProbes[p + 1] + HIT_SLOP;
+            int hits = 0;
+            for (int i = 0; i < mStrokes.length; i++) {
+                float[] bounds = mStrokeBounds[i];
+                if (right < bounds[0] || left > bounds[2] || bottom < bounds[1] || top > bounds[3]) continue;
+                if (Geometry.intersectsOval(mStrokes[i], STROKE_SIZE, left, top, right, bottom)) hits++;
+            }
+            blackhole.consume(hits);
+        }
+    }
+
+    @Benchmark
+    public int encode() {
+        mBuffer.clear();
+        PointCodec.encode(mStroke, points, QUANTIZATION, mBuffer);
+        return mBuffer.position();
+    }
+
+    @Benchmark
+    public float[] decode() {
+        PointCodec.decode(mEncoded.duplicate(), 0, points, QUANTIZATION, mDecoded);
+        return mDecoded;
+    }
+}
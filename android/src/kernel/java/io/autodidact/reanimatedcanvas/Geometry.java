@@ -0,0 +1,148 @@
+package io.autodidact.reanimatedcanvas;
+
+/**
+ * Stroke geometry over plain coordinates, free of android dependencies so it can run and be profiled on any JVM.
+ * Points are passed as interleaved `[x0, y0, x1, y1, ...]` arrays, rects as `[left, top, right, bottom]`.
+ * The kernels of this source set, along with {@link QuadSmoothing} and {@link PointCodec}, are benchmarked by `android/benchmark`.
+ * `PathUtil` and `LevelOfDetail` adapt them to `PointF`s.
+ */
+final class Geometry {
+
+    private Geometry() {}
+
+    /**
+     * @return the squared distance from `p` to the segment `ab`
+     */
+    static float getSqSegmentDistance(float px, float py, float ax, float ay, float bx, float by) {
+        float x = ax, y = ay;
+        float dx = bx - x, dy = by - y;
+        if (dx != 0 || dy != 0) {
+            float t = ((px - x) * dx + (py - y) * dy) / (dx * dx + dy * dy);
+            if (t > 1) {
+                x = bx;
+                y = by;
+            } else if (t > 0) {
+                x += dx * t;
+                y += dy * t;
+            }
+        }
+        dx = px - x;
+        dy = py - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * @return the squared distance between the segments `ab` and `cd`
+     */
+    static float getSqSegmentsDistance(float ax, float ay, float bx, float by,
+                                       float cx, float cy, float dx, float dy) {
+        if (segmentsIntersect(ax, ay, bx, by, cx, cy, dx, dy)) return 0;
+        return Math.min(
+                Math.min(getSqSegmentDistance(ax, ay, cx, cy, dx, dy), getSqSegmentDistance(bx, by, cx, cy, dx, dy)),
+                Math.min(getSqSegmentDistance(cx, cy, ax, ay, bx, by), getSqSegmentDistance(dx, dy, ax, ay, bx, by))
+        );
+    }
+
+    /**
+     * @return whether `ab` and `cd` properly cross each other
+     */
+    static boolean segmentsIntersect(float ax, float ay, float bx, float by,
+                                     float cx, float cy, float dx, float dy) {
+        float d1 = cross(cx, cy, dx, dy, ax, ay);
+        float d2 = cross(cx, cy, dx, dy, bx, by);
+        float d3 = cross(ax, ay, bx, by, cx, cy);
+        float d4 = cross(ax, ay, bx, by, dx, dy);
+        return ((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0));
+    }
+
+    private static float cross(float ox, float oy, float ax, float ay, float bx, float by) {
+        return (ax - ox) * (by - oy) - (ay - oy) * (bx - ox);
+    }
+
+    /**
+     * sets `out` to the bounds of the first `count` points of `xy`, quadratic segments are contained by their control points
+     * @return false if there are no points, `out` is left untouched
+     */
+    static boolean computeBounds(float[] xy, int count, float[] out) {
+        if (count == 0) return false;
+        float left = xy[0], top = xy[1], right = left, bottom = top;
+        for (int i = 1; i < count; i++) {
+            float x = xy[i * 2], y = xy[i * 2 + 1];
+            if (x < left) left = x; else if (x > right) right = x;
+            if (y < top) top = y; else if (y > bottom) bottom = y;
+        }
+        out[0] = left;
+        out[1] = top;
+        out[2] = right;
+        out[3] = bottom;
+        return true;
+    }
+
+    /**
+     * hit tests a stroke against the oval inscribed in a point's hit slop rect.
+     * Tests the polyline through the points, which the smoothed quadratic segments deviate from by a fraction of each turn
+     * @return whether the first `count` points of `xy` touch the oval, an empty oval touches nothing
+     */
+    static boolean intersectsOval(float[] xy, int count, float left, float top, float right, float bottom) {
+        float rx = (right - left) / 2, ry = (bottom - top) / 2;
+        if (count == 0 || rx <= 0 || ry <= 0) return false;
+        // scaled so that the oval becomes the unit circle
+        float cx = left + rx, cy = top + ry;
+        float sx = 1 / rx, sy = 1 / ry;
+        float ax = (xy[0] - cx) * sx, ay = (xy[1] - cy) * sy;
+        if (count == 1) {
+            return ax * ax + ay * ay <= 1;
+        }
+        for (int i = 1; i < count; i++) {
+            float bx = (xy[i * 2] - cx) * sx, by = (xy[i * 2 + 1] - cy) * sy;
+            if (getSqSegmentDistance(0, 0, ax, ay, bx, by) <= 1) {
+                return true;
+            }
+            ax = bx;
+            ay = by;
+        }
+        return false;
+    }
+
+    /**
+     * Douglas-Peucker, iterative to keep the stack shallow for long strokes
+     * @return a mask of the points to keep from the first `count` points of `xy`
+     */
+    static boolean[] simplify(float[] xy, int count, float tolerance) {
+        boolean[] keep = new boolean[count];
+        if (count < 3) {
+            for (int i = 0; i < count; i++) keep[i] = true;
+            return keep;
+        }
+        keep[0] = keep[count - 1] = true;
+        float sqTolerance = tolerance * tolerance;
+        int[] stack = new int[count * 2];
+        int top = 0;
+        stack[top++] = 0;
+        stack[top++] = count - 1;
+
+        while (top > 0) {
+            int last = stack[--top];
+            int first = stack[--top];
+            float ax = xy[first * 2], ay = xy[first * 2 + 1];
+            float bx = xy[last * 2], by = xy[last * 2 + 1];
+            float maxSqDistance = sqTolerance;
+            int index = -1;
+            for (int i = first + 1; i < last; i++) {
+                float sqDistance = getSqSegmentDistance(xy[i * 2], xy[i * 2 + 1], ax, ay, bx, by);
+                if (sqDistance > maxSqDistance) {
+                    index = i;
+                    maxSqDistance = sqDistance;
+                }
+            }
+            if (index != -1) {
+                keep[index] = true;
+                stack[top++] = first;
+                stack[top++] = index;
+                stack[top++] = index;
+                stack[top++] = last;
+            }
+        }
+        return keep;
+    }
+}
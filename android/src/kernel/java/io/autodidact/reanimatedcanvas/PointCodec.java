@@ -0,0 +1,85 @@
+package io.autodidact.reanimatedcanvas;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The point encoding of compacted strokes and drawing files, free of android dependencies, see {@link Geometry}.
+ * Coordinates are quantized and each stored as a zigzag varint delta from the previous point,
+ * points are passed as interleaved `[x0, y0, x1, y1, ...]` arrays.
+ */
+final class PointCodec {
+
+    /**
+     * longest varint encoding of a 32 bit value
+     */
+    static final int MAX_VARINT_SIZE = 5;
+    /**
+     * longest encoding of a point, two 32 bit varints
+     */
+    static final int MAX_POINT_SIZE = MAX_VARINT_SIZE * 2;
+
+    private PointCodec() {}
+
+    /**
+     * writes the first `count` points of `xy`, at most {@link #MAX_POINT_SIZE} bytes per point
+     * @param quantization steps per unit, coordinates are rounded to the nearest step
+     */
+    static void encode(float[] xy, int count, float quantization, ByteBuffer out) {
+        int prevX = 0, prevY = 0;
+        for (int i = 0; i < count; i++) {
+            int x = Math.round(xy[i * 2] * quantization);
+            int y = Math.round(xy[i * 2 + 1] * quantization);
+            putVarint(out, zigzag(x - prevX));
+            putVarint(out, zigzag(y - prevY));
+            prevX = x;
+            prevY = y;
+        }
+    }
+
+    /**
+     * decodes the points in [from, to) into `out`, points are delta encoded so the preceding points are decoded and skipped
+     * @param in positioned at the first point, its position is advanced past point `to - 1`
+     */
+    static void decode(ByteBuffer in, int from, int to, float quantization, float[] out) {
+        int x = 0, y = 0;
+        for (int i = 0; i < to; i++) {
+            x += unzigzag(getVarint(in));
+            y += unzigzag(getVarint(in));
+            if (i >= from) {
+                out[(i - from) * 2] = x / quantization;
+                out[(i - from) * 2 + 1] = y / quantization;
+            }
+        }
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * writes at most {@link #MAX_VARINT_SIZE} bytes
+     */
+    static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7f) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
@@ -0,0 +1,60 @@
+package io.autodidact.reanimatedcanvas;
+
+/**
+ * The smoothing strokes are drawn with, free of android dependencies, see {@link Geometry}.
+ * Each point past the second adds a quadratic segment from the midpoint of the two points before it,
+ * through the previous point, to the midpoint of the last two.
+ * Segments are emitted to a {@link Sink}, e.g. an android `Path` or an SVG path string.
+ */
+final class QuadSmoothing {
+
+    interface Sink {
+        void moveTo(float x, float y);
+        void lineTo(float x, float y);
+        void quadTo(float x1, float y1, float x2, float y2);
+    }
+
+    private QuadSmoothing() {}
+
+    /**
+     * emits the segments of the first `count` points of `xy`
+     */
+    static void emit(float[] xy, int count, Sink sink) {
+        emit(xy, count, 0, count, sink);
+    }
+
+    /**
+     * emits the segments added by the points in [from, to), so long strokes can be emitted in chunks
+     * @param count the number of points of the stroke, which determines how the first points are joined
+     */
+    static void emit(float[] xy, int count, int from, int to, Sink sink) {
+        for (int i = from; i < to; i++) {
+            if (count >= 3 && i >= 2) {
+                float ax = xy[(i - 2) * 2], ay = xy[(i - 2) * 2 + 1];
+                float bx = xy[(i - 1) * 2], by = xy[(i - 1) * 2 + 1];
+                float cx = xy[i * 2], cy = xy[i * 2 + 1];
+                sink.moveTo((ax + bx) * 0.5f, (ay + by) * 0.5f);
+                sink.quadTo(bx, by, (bx + cx) * 0.5f, (by + cy) * 0.5f);
+            } else if (count >= 2 && i >= 1) {
+                float ax = xy[(i - 1) * 2], ay = xy[(i - 1) * 2 + 1];
+                float bx = xy[i * 2], by = xy[i * 2 + 1];
+                // a line to the middle of the first two points, so the first curve continues from there
+                sink.moveTo(ax, ay);
+                sink.lineTo((ax + bx) * 0.5f, (ay + by) * 0.5f);
+            } else {
+                // a single point
+                float ax = xy[i * 2], ay = xy[i * 2 + 1];
+                sink.moveTo(ax, ay);
+                sink.lineTo(ax, ay);
+            }
+        }
+    }
+
+    /**
+     * emits the segment added by appending `(x, y)` after `t` and `p`, used while a stroke is drawn
+     */
+    static void emitSegment(float tx, float ty, float px, float py, float x, float y, Sink sink) {
+        sink.moveTo((px + tx) * 0.5f, (py + ty) * 0.5f);
+        sink.quadTo(px, py, (x + px) * 0.5f, (y + py) * 0.5f);
+    }
+}
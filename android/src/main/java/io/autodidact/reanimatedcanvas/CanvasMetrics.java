@@ -0,0 +1,252 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.content.ComponentCallbacks2;
+import android.os.SystemClock;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Counters and latency histograms of a single canvas, reported by `getMetrics` and `onMetrics`.
+ * Recorded from the UI thread and from background queries, so all access is synchronized.
+ */
+class CanvasMetrics {
+
+    /**
+     * rough retained size of a point in a path's state, a {@link android.graphics.PointF} and its reference
+     */
+    static final int BYTES_PER_POINT = 24;
+
+    /**
+     * reported for {@link android.content.ComponentCallbacks#onLowMemory}, above every trim level
+     */
+    static final int TRIM_LOW_MEMORY = ComponentCallbacks2.TRIM_MEMORY_COMPLETE + 1;
+
+    /**
+     * power of 2 buckets, bucket `i` counts values in [2^(i-1), 2^i)
+     */
+    static class Histogram {
+        private static final int BUCKETS = 32;
+
+        private final long[] mBuckets = new long[BUCKETS];
+        private long mCount = 0;
+        private long mSum = 0;
+        private long mMax = 0;
+
+        synchronized void record(long value) {
+            value = Math.max(value, 0);
+            int bucket = Math.min(64 - Long.numberOfLeadingZeros(value), BUCKETS - 1);
+            mBuckets[bucket]++;
+            mCount++;
+            mSum += value;
+            mMax = Math.max(mMax, value);
+        }
+
+        /**
+         * @return the upper bound of the bucket holding the `percentile`
+         */
+        private long getPercentile(double percentile) {
+            long target = (long) Math.ceil(mCount * percentile);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += mBuckets[i];
+                if (seen >= target && seen > 0) {
+                    return Math.min(i == 0 ? 0 : 1L << i, mMax);
+                }
+            }
+            return mMax;
+        }
+
+        synchronized WritableMap toWritableMap() {
+            WritableMap out = Arguments.createMap();
+            out.putDouble("count", mCount);
+            out.putDouble("mean", mCount > 0 ? mSum / (double) mCount : 0);
+            out.putDouble("max", mMax);
+            out.putDouble("p50", getPercentile(0.5));
+            out.putDouble("p95", getPercentile(0.95));
+            out.putDouble("p99", getPercentile(0.99));
+            return out;
+        }
+    }
+
+    private final long[] mCommands = new long[RCanvasManager.Commands.APPLY_OPS + 1];
+    private long mPointsIngested = 0;
+    private long mChangeEvents = 0;
+    private volatile long mLastHitTestTime = 0;
+    private final HashMap<String, Long> mMemoryTrims = new HashMap<>();
+    @Nullable private String mLastMemoryTrim;
+    /**
+     * µs
+     */
+    final Histogram drawTime = new Histogram();
+    /**
+     * µs
+     */
+    final Histogram hitTestTime = new Histogram();
+    /**
+     * µs
+     */
+    final Histogram changeSerializationTime = new Histogram();
+    /**
+     * points serialized per change event
+     */
+    final Histogram changePayloadSize = new Histogram();
+    private final long mStart = SystemClock.uptimeMillis();
+
+    static long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * @return µs since `start`, obtained from {@link #now}
+     */
+    static long since(long start) {
+        return (System.nanoTime() - start) / 1000;
+    }
+
+    synchronized void onCommand(@RCanvasManager.Commands int command) {
+        if (command >= 0 && command < mCommands.length) {
+            mCommands[command]++;
+        }
+    }
+
+    synchronized void onPointsIngested(int count) {
+        mPointsIngested += count;
+    }
+
+    /**
+     * @param start obtained from {@link #now}
+     */
+    void onHitTest(long start) {
+        mLastHitTestTime = since(start);
+        hitTestTime.record(mLastHitTestTime);
+    }
+
+    /**
+     * µs
+     */
+    long getLastHitTestTime() {
+        return mLastHitTestTime;
+    }
+
+    /**
+     * @param level a {@link ComponentCallbacks2} trim level or {@link #TRIM_LOW_MEMORY}
+     */
+    synchronized void onTrimMemory(int level) {
+        String name = getTrimLevelName(level);
+        Long count = mMemoryTrims.get(name);
+        mMemoryTrims.put(name, count == null ? 1 : count + 1);
+        mLastMemoryTrim = name;
+    }
+
+    void onChangeEmitted(long start, int pointCount) {
+        changeSerializationTime.record(since(start));
+        changePayloadSize.record(pointCount);
+        synchronized (this) {
+            mChangeEvents++;
+        }
+    }
+
+    /**
+     * must be called on the UI thread, scene totals are read from `canvas`
+     */
+    WritableMap toWritableMap(RCanvas canvas) {
+        WritableMap out = Arguments.createMap();
+        WritableMap commands = Arguments.createMap();
+        synchronized (this) {
+            for (int i = 1; i < mCommands.length; i++) {
+                commands.putDouble(getCommandName(i), mCommands[i]);
+            }
+            out.putDouble("pointsIngested", mPointsIngested);
+            out.putDouble("changeEvents", mChangeEvents);
+            WritableMap trims = Arguments.createMap();
+            for (Map.Entry<String, Long> entry: mMemoryTrims.entrySet()) {
+                trims.putDouble(entry.getKey(), entry.getValue());
+            }
+            out.putMap("memoryTrims", trims);
+            out.putString("lastMemoryTrim", mLastMemoryTrim);
+        }
+        out.putMap("commands", commands);
+        out.putMap("drawTime", drawTime.toWritableMap());
+        out.putMap("hitTestTime", hitTestTime.toWritableMap());
+        out.putMap("changeSerializationTime", changeSerializationTime.toWritableMap());
+        out.putMap("changePayloadSize", changePayloadSize.toWritableMap());
+
+        int strokeCount = 0;
+        long pointCount = 0;
+        long pointBytes = 0;
+        int compactedCount = 0;
+        HashSet<CompactPoints> counted = new HashSet<>();
+        HashSet<SceneSnapshot.StrokeSnapshot> snapshots = new HashSet<>();
+        for (RPath path: canvas.paths()) {
+            RPathState state = path.getState();
+            strokeCount++;
+            pointCount += state.size();
+            pointBytes += state.getByteSize();
+            if (state.isCompacted()) {
+                compactedCount++;
+                counted.add(state.getCompactPoints());
+            }
+            if (path.peekSnapshot() != null) {
+                snapshots.add(path.peekSnapshot());
+            }
+        }
+        SceneSnapshot scene = canvas.peekSnapshot();
+        if (scene != null) {
+            Collections.addAll(snapshots, scene.select(null));
+        }
+        // compacted points shared with a path are counted once
+        long snapshotBytes = 0;
+        for (SceneSnapshot.StrokeSnapshot snapshot: snapshots) {
+            CompactPoints points = snapshot.getCompactPoints();
+            if (points == null || counted.add(points)) {
+                snapshotBytes += snapshot.getByteSize();
+            }
+        }
+        out.putInt("strokes", strokeCount);
+        out.putInt("compactedStrokes", compactedCount);
+        out.putDouble("points", pointCount);
+        out.putDouble("pointBytes", pointBytes + snapshotBytes);
+        out.putDouble("snapshotBytes", snapshotBytes);
+        out.putMap("layer", canvas.getCommittedLayer().getStats());
+        out.putMap("arena", canvas.getPointArena().getStats());
+        out.putInt("styles", StrokeStyle.size());
+        out.putDouble("uptime", SystemClock.uptimeMillis() - mStart);
+        return out;
+    }
+
+    private static String getTrimLevelName(int level) {
+        switch (level) {
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE: return "runningModerate";
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW: return "runningLow";
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL: return "runningCritical";
+            case ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN: return "uiHidden";
+            case ComponentCallbacks2.TRIM_MEMORY_BACKGROUND: return "background";
+            case ComponentCallbacks2.TRIM_MEMORY_MODERATE: return "moderate";
+            case ComponentCallbacks2.TRIM_MEMORY_COMPLETE: return "complete";
+            case TRIM_LOW_MEMORY: return "lowMemory";
+            default: return String.format(Locale.ENGLISH, "level%d", level);
+        }
+    }
+
+    private static String getCommandName(@RCanvasManager.Commands int command) {
+        switch (command) {
+            case RCanvasManager.Commands.ALLOC: return RCanvasManager.StringCommands.COMMAND_ALLOC;
+            case RCanvasManager.Commands.DRAW_POINT: return RCanvasManager.StringCommands.COMMAND_DRAW_POINT;
+            case RCanvasManager.Commands.END_INTERACTION: return RCanvasManager.StringCommands.COMMAND_END_INTERACTION;
+            case RCanvasManager.Commands.CLEAR: return RCanvasManager.StringCommands.COMMAND_CLEAR;
+            case RCanvasManager.Commands.UPDATE: return RCanvasManager.StringCommands.COMMAND_UPDATE;
+            case RCanvasManager.Commands.SET_PATH_ATTRIBUTES: return RCanvasManager.StringCommands.COMMAND_SET_PATH_ATTRIBUTES;
+            case RCanvasManager.Commands.APPLY_OPS: return RCanvasManager.StringCommands.COMMAND_APPLY_OPS;
+            default: return String.format(Locale.ENGLISH, "command%d", command);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * Caches the committed paths of a canvas in a bitmap while paths are being drawn,
+ * so each frame of an interaction draws the bitmap and the live paths on top of it instead of every path.
+ * Paths ending their interaction are drawn into the bitmap as they are committed,
+ * any other change to a committed path invalidates it and it is rebuilt on the next frame.
+ */
+class CommittedLayer {
+
+    private final RCanvas mView;
+    private Bitmap mBitmap;
+    private Canvas mCanvas;
+    private boolean mValid = false;
+    private int mHits = 0;
+    private int mMisses = 0;
+
+    CommittedLayer(RCanvas view) {
+        mView = view;
+    }
+
+    void invalidate() {
+        mValid = false;
+    }
+
+    boolean isValid() {
+        return mValid;
+    }
+
+    /**
+     * draws the committed paths onto `canvas`, in view space
+     */
+    void draw(Canvas canvas) {
+        int width = mView.getWidth();
+        int height = mView.getHeight();
+        if (width == 0 || height == 0) return;
+        if (mValid) {
+            mHits++;
+        } else {
+            mMisses++;
+            rebuild(width, height);
+        }
+        canvas.drawBitmap(mBitmap, 0, 0, null);
+    }
+
+    private void rebuild(int width, int height) {
+        if (mBitmap == null || mBitmap.getWidth() != width || mBitmap.getHeight() != height) {
+            release();
+            mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            mCanvas = new Canvas(mBitmap);
+        }
+        mBitmap.eraseColor(Color.TRANSPARENT);
+        for (RPath path: mView.getCommittedPaths()) {
+            drawPath(path);
+        }
+        mValid = true;
+    }
+
+    /**
+     * draws a path that has just been committed into the bitmap, it must be drawn above all other committed paths
+     */
+    void commit(RPath path) {
+        if (mValid) {
+            drawPath(path);
+        }
+    }
+
+    private void drawPath(RPath path) {
+        if (!path.intersects(mView.getVisibleRect())) return;
+        int saveCount = mCanvas.save();
+        mCanvas.concat(mView.getViewport());
+        path.drawTo(mCanvas);
+        mCanvas.restoreToCount(saveCount);
+    }
+
+    void release() {
+        mValid = false;
+        mCanvas = null;
+        if (mBitmap != null) {
+            mBitmap.recycle();
+            mBitmap = null;
+        }
+    }
+
+    /**
+     * a hit is a frame drawn from the cached bitmap, a miss is a frame that had to rebuild it
+     */
+    WritableMap getStats() {
+        WritableMap out = Arguments.createMap();
+        out.putInt("hits", mHits);
+        out.putInt("misses", mMisses);
+        out.putDouble("hitRate", mHits + mMisses > 0 ? mHits / (double) (mHits + mMisses) : 0);
+        out.putInt("bytes", mBitmap != null ? mBitmap.getByteCount() : 0);
+        return out;
+    }
+}
@@ -0,0 +1,153 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.graphics.PointF;
+import android.graphics.RectF;
+
+import androidx.annotation.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Immutable, compact storage of a committed stroke's points:
+ * coordinates quantized to 1/{@link #QUANTIZATION} px, each stored as a zigzag varint delta from the previous point, see {@link PointCodec}.
+ * Typical strokes take 2-4 bytes per point instead of a {@link PointF} each.
+ * Decoded points deviate from the originals by at most half a quantization step,
+ * the stroke's cached path and bounds are kept from the originals until trimmed, see {@link RPath#trim}.
+ * Instances are shared by saved states and reference counted, so storage allocated from a {@link PointArena} is freed exactly once.
+ * The encoded bytes are never written again, so {@link SceneSnapshot}s read them off the UI thread without holding a reference.
+ * Shared points are moved to the heap once the last reference is released, so snapshots keep reading them,
+ * and their arena storage is reused once the reads in progress are done.
+ */
+class CompactPoints {
+
+    static final int QUANTIZATION = 16;
+
+    private volatile ByteBuffer mBuffer;
+    private final int mCount;
+    @Nullable private final PointArena mArena;
+    @Nullable private final PointArena.Slice mSlice;
+    private int mRefCount = 1;
+    private boolean mShared = false;
+    /**
+     * decodes in progress, see {@link PointArena#free}
+     */
+    private final AtomicInteger mReaders = new AtomicInteger();
+
+    private CompactPoints(ByteBuffer buffer, int count, @Nullable PointArena arena, @Nullable PointArena.Slice slice) {
+        mBuffer = buffer;
+        mCount = count;
+        mArena = arena;
+        mSlice = slice;
+    }
+
+    /**
+     * @param arena allocates the encoded points off the java heap, pass null to keep them on the heap
+     */
+    static CompactPoints encode(ArrayList<PointF> points, @Nullable PointArena arena) {
+        int count = points.size();
+        ByteBuffer buffer = ByteBuffer.allocate(count * PointCodec.MAX_POINT_SIZE);
+        PointCodec.encode(PathUtil.toArray(points), count, QUANTIZATION, buffer);
+        buffer.flip();
+        if (arena != null) {
+            PointArena.Slice slice = arena.allocate(buffer);
+            return new CompactPoints(slice.buffer, count, arena, slice);
+        }
+        return new CompactPoints(copyOf(buffer), count, null, null);
+    }
+
+    private static ByteBuffer copyOf(ByteBuffer buffer) {
+        ByteBuffer out = ByteBuffer.allocate(buffer.remaining());
+        out.put(buffer);
+        out.flip();
+        return out;
+    }
+
+    CompactPoints retain() {
+        mRefCount++;
+        return this;
+    }
+
+    /**
+     * marks the points as read off the UI thread without a reference, see {@link SceneSnapshot.StrokeSnapshot}
+     */
+    CompactPoints share() {
+        mShared = true;
+        return this;
+    }
+
+    /**
+     * must be called once per reference, unless shared the points must not be read once the last reference is released
+     */
+    void release() {
+        if (--mRefCount == 0 && mArena != null) {
+            if (mShared) {
+                mBuffer = copyOf(mBuffer.duplicate());
+                mArena.free(mSlice, this);
+            } else {
+                mArena.free(mSlice, null);
+            }
+        }
+    }
+
+    boolean hasReaders() {
+        return mReaders.get() > 0;
+    }
+
+    boolean isOffHeap() {
+        return mSlice != null;
+    }
+
+    int size() {
+        return mCount;
+    }
+
+    /**
+     * encoded bytes
+     */
+    int getByteSize() {
+        return mBuffer.limit();
+    }
+
+    ArrayList<PointF> decode() {
+        float[] xy = toArray();
+        ArrayList<PointF> out = new ArrayList<>(mCount);
+        for (int i = 0; i < mCount; i++) {
+            out.add(new PointF(xy[i * 2], xy[i * 2 + 1]));
+        }
+        return out;
+    }
+
+    /**
+     * @return points interleaved as `[x0, y0, x1, y1, ...]`, see {@link Geometry}
+     */
+    float[] toArray() {
+        return toArray(0, mCount);
+    }
+
+    /**
+     * see {@link PointCodec#decode}
+     * @return points interleaved as `[x0, y0, x1, y1, ...]`
+     */
+    float[] toArray(int from, int to) {
+        float[] out = new float[(to - from) * 2];
+        // registered before reading the buffer, so a slice is reused only once it is no longer read
+        mReaders.incrementAndGet();
+        try {
+            PointCodec.decode(mBuffer.duplicate(), from, to, QUANTIZATION, out);
+        } finally {
+            mReaders.decrementAndGet();
+        }
+        return out;
+    }
+
+    void computeBounds(RectF out) {
+        float[] bounds = new float[4];
+        if (Geometry.computeBounds(toArray(), mCount, bounds)) {
+            out.set(bounds[0], bounds[1], bounds[2], bounds[3]);
+        } else {
+            out.setEmpty();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PointF;
+import android.graphics.RectF;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+/**
+ * Draws recent hit test probes and a HUD over the canvas, from {@link RCanvas#dispatchDraw}.
+ * Probes are kept in a fixed ring buffer, so debugging a large scene doesn't add views or allocate per frame.
+ * Confined to the UI thread.
+ */
+class DebugOverlay {
+
+    private static final int CAPACITY = 256;
+    private static final long PROBE_DURATION_MS = 1500;
+    private static final int FRAMES = 120;
+
+    private final RCanvas mCanvas;
+    private boolean mEnabled = false;
+    private final RectF[] mRects = new RectF[CAPACITY];
+    private final String[] mLabels = new String[CAPACITY];
+    private final int[] mColors = new int[CAPACITY];
+    private final long[] mTimes = new long[CAPACITY];
+    private int mHead = 0;
+    private int mSize = 0;
+    /**
+     * ring buffer of recent frame times, ns
+     */
+    private final long[] mFrames = new long[FRAMES];
+    private int mFrameHead = 0;
+    private int mFrameCount = 0;
+    private final Paint mProbePaint = new Paint();
+    private final Paint mTextPaint = new Paint();
+    private final Paint mBackgroundPaint = new Paint();
+    private final ArrayList<String> mLines = new ArrayList<>();
+    private final Runnable mInvalidate = new Runnable() {
+        @Override
+        public void run() {
+            mCanvas.postInvalidateOnAnimation();
+        }
+    };
+
+    DebugOverlay(RCanvas canvas) {
+        mCanvas = canvas;
+        for (int i = 0; i < CAPACITY; i++) {
+            mRects[i] = new RectF();
+        }
+        mProbePaint.setStyle(Paint.Style.STROKE);
+        mProbePaint.setStrokeWidth(10);
+        mProbePaint.setAntiAlias(true);
+        mTextPaint.setColor(Color.BLACK);
+        mTextPaint.setTextSize(20);
+        mTextPaint.setAntiAlias(true);
+        mBackgroundPaint.setColor(Color.argb(180, 255, 255, 255));
+    }
+
+    void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+        if (!enabled) {
+            mSize = 0;
+            mFrameCount = 0;
+            mCanvas.removeCallbacks(mInvalidate);
+        }
+        mCanvas.postInvalidateOnAnimation();
+    }
+
+    boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * a probe of the canvas' hit slop
+     */
+    void addProbe(PointF point) {
+        addProbe(Utility.applyHitSlop(point, mCanvas.mHitSlop), "RCanvas", Color.MAGENTA);
+    }
+
+    /**
+     * a probe of `path`'s hit slop
+     */
+    void addProbe(RPath path, PointF point) {
+        addProbe(Utility.applyHitSlop(point, path.getHitSlop()), String.valueOf(path.getPathId()), Color.BLUE);
+    }
+
+    private void addProbe(RectF rect, String label, int color) {
+        mRects[mHead].set(rect);
+        mLabels[mHead] = label;
+        mColors[mHead] = color;
+        mTimes[mHead] = SystemClock.uptimeMillis();
+        mHead = (mHead + 1) % CAPACITY;
+        mSize = Math.min(mSize + 1, CAPACITY);
+        mCanvas.postInvalidateOnAnimation();
+    }
+
+    void draw(Canvas canvas) {
+        long now = SystemClock.uptimeMillis();
+        mFrames[mFrameHead] = System.nanoTime();
+        mFrameHead = (mFrameHead + 1) % FRAMES;
+        mFrameCount = Math.min(mFrameCount + 1, FRAMES);
+        drawProbes(canvas, now);
+        drawHud(canvas);
+    }
+
+    private void drawProbes(Canvas canvas, long now) {
+        long nextExpiry = Long.MAX_VALUE;
+        int saveCount = canvas.save();
+        canvas.concat(mCanvas.getViewport());
+        for (int i = 0; i < mSize; i++) {
+            int index = (mHead - 1 - i + CAPACITY) % CAPACITY;
+            long expiry = mTimes[index] + PROBE_DURATION_MS;
+            if (expiry <= now) {
+                // older probes expired as well
+                mSize = i;
+                break;
+            }
+            nextExpiry = Math.min(nextExpiry, expiry);
+            RectF rect = mRects[index];
+            mProbePaint.setColor(mColors[index]);
+            canvas.drawOval(rect, mProbePaint);
+            canvas.drawText(mLabels[index], rect.left, rect.top, mTextPaint);
+        }
+        canvas.restoreToCount(saveCount);
+        mCanvas.removeCallbacks(mInvalidate);
+        if (nextExpiry != Long.MAX_VALUE) {
+            mCanvas.postDelayed(mInvalidate, nextExpiry - now);
+        }
+    }
+
+    private void drawHud(Canvas canvas) {
+        CanvasMetrics metrics = mCanvas.getMetrics();
+        int strokeCount = 0;
+        long pointCount = 0;
+        for (RPath path: mCanvas.mPaths) {
+            strokeCount++;
+            pointCount += path.getState().size();
+        }
+        mLines.clear();
+        mLines.add(String.format(Locale.ENGLISH, "fps %.1f", getFps()));
+        mLines.add(String.format(Locale.ENGLISH, "strokes %d points %d", strokeCount, pointCount));
+        mLines.add(String.format(Locale.ENGLISH, "hit test %dµs", metrics.getLastHitTestTime()));
+        mLines.add(String.format(Locale.ENGLISH, "pending %d", mCanvas.getPendingEventCount()));
+
+        float lineHeight = mTextPaint.getTextSize() * 1.2f;
+        float width = 0;
+        for (String line: mLines) {
+            width = Math.max(width, mTextPaint.measureText(line));
+        }
+        canvas.drawRect(0, 0, width + 16, lineHeight * mLines.size() + 16, mBackgroundPaint);
+        for (int i = 0; i < mLines.size(); i++) {
+            canvas.drawText(mLines.get(i), 8, 8 + lineHeight * (i + 1) - mTextPaint.descent(), mTextPaint);
+        }
+    }
+
+    /**
+     * frames drawn in the last second, the canvas is only drawn when it changes
+     */
+    private float getFps() {
+        if (mFrameCount < 2) return 0;
+        long last = mFrames[(mFrameHead - 1 + FRAMES) % FRAMES];
+        int frames = 0;
+        for (int i = 1; i < mFrameCount; i++) {
+            long time = mFrames[(mFrameHead - 1 - i + FRAMES) % FRAMES];
+            if (last - time > 1000000000L) break;
+            frames++;
+        }
+        return frames;
+    }
+}
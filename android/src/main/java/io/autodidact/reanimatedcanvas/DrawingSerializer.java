@@ -0,0 +1,269 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.graphics.PointF;
+
+import com.facebook.react.uimanager.PixelUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Compact binary drawing format, all values little endian:
+ * <pre>
+ * magic          "RCNV"
+ * u8             version
+ * u8             flags, reserved
+ * u16            quantization, units per DIP
+ * varint         attribute count
+ *   i32            strokeColor
+ *   f32            strokeWidth, DIP
+ * varint         stroke count
+ *   zigzag varint  path id
+ *   varint         attribute index
+ *   varint         point count
+ *     zigzag varint  dx, dy of quantized DIP coordinates, relative to the previous point of the stroke
+ * </pre>
+ * Coordinates are stored in DIP so documents are portable across screen densities.
+ */
+class DrawingSerializer {
+
+    private static final byte[] MAGIC = { 'R', 'C', 'N', 'V' };
+    static final int VERSION = 1;
+    static final int QUANTIZATION = 16;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * @return number of bytes written
+     */
+    static long write(SceneSnapshot.StrokeSnapshot[] strokes, File file) throws IOException {
+        FileOutputStream stream = new FileOutputStream(file);
+        FileChannel channel = stream.getChannel();
+        try {
+            Writer writer = new Writer(channel);
+            HashMap<Long, Integer> attributeIndex = new HashMap<>();
+            ArrayList<SceneSnapshot.StrokeSnapshot> attributes = new ArrayList<>();
+            for (SceneSnapshot.StrokeSnapshot stroke : strokes) {
+                Long key = attributeKey(stroke);
+                if (!attributeIndex.containsKey(key)) {
+                    attributeIndex.put(key, attributes.size());
+                    attributes.add(stroke);
+                }
+            }
+
+            writer.ensure(MAGIC.length + 4);
+            writer.buffer.put(MAGIC);
+            writer.buffer.put((byte) VERSION);
+            writer.buffer.put((byte) 0);
+            writer.buffer.putShort((short) QUANTIZATION);
+
+            writer.putVarint(attributes.size());
+            for (SceneSnapshot.StrokeSnapshot attribute : attributes) {
+                writer.ensure(8);
+                writer.buffer.putInt(attribute.strokeColor);
+                writer.buffer.putFloat(PixelUtil.toDIPFromPixel(attribute.strokeWidth));
+            }
+
+            writer.putVarint(strokes.length);
+            for (SceneSnapshot.StrokeSnapshot stroke : strokes) {
+                float[] points = stroke.getPoints();
+                writer.putVarint(PointCodec.zigzag(stroke.pathId));
+                writer.putVarint(attributeIndex.get(attributeKey(stroke)));
+                writer.putVarint(stroke.getPointCount());
+                int prevX = 0, prevY = 0;
+                for (int i = 0; i < points.length; i += 2) {
+                    int x = quantize(points[i]);
+                    int y = quantize(points[i + 1]);
+                    writer.putVarint(PointCodec.zigzag(x - prevX));
+                    writer.putVarint(PointCodec.zigzag(y - prevY));
+                    prevX = x;
+                    prevY = y;
+                }
+            }
+
+            writer.flush();
+            channel.force(false);
+            return channel.size();
+        } finally {
+            stream.close();
+        }
+    }
+
+    static ArrayList<StrokeRecord> read(File file) throws IOException {
+        Reader reader = new Reader(file);
+        try {
+            ArrayList<StrokeRecord> records = new ArrayList<>(reader.getStrokeCount());
+            while (reader.hasNext()) {
+                records.add(reader.next());
+            }
+            return records;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * decodes strokes one at a time from a memory-mapped file.
+     * Counts read from the file are checked against the bytes left so that a corrupt file fails with an IOException instead of a huge allocation
+     */
+    static class Reader {
+        /**
+         * smallest encodings, bounding the counts a file of a given size can hold
+         */
+        private static final int MIN_ATTRIBUTE_SIZE = 8;
+        private static final int MIN_STROKE_SIZE = 3;
+        private static final int MIN_POINT_SIZE = 2;
+
+        private final File mFile;
+        private final FileInputStream mStream;
+        private final MappedByteBuffer mBuffer;
+        private final float mQuantization;
+        private final int[] mColors;
+        private final float[] mWidths;
+        private final int mStrokeCount;
+        private int mStrokeIndex = 0;
+
+        Reader(File file) throws IOException {
+            mFile = file;
+            mStream = new FileInputStream(file);
+            boolean opened = false;
+            try {
+                FileChannel channel = mStream.getChannel();
+                mBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                mBuffer.order(ByteOrder.LITTLE_ENDIAN);
+
+                for (byte b : MAGIC) {
+                    if (mBuffer.get() != b) {
+                        throw new IOException(String.format(Locale.ENGLISH, "%s is not a drawing file", file));
+                    }
+                }
+                int version = mBuffer.get() & 0xff;
+                if (version > VERSION) {
+                    throw new IOException(String.format(Locale.ENGLISH, "unsupported drawing file version %d", version));
+                }
+                mBuffer.get();
+                mQuantization = mBuffer.getShort() & 0xffff;
+                if (mQuantization == 0) {
+                    throw corrupt("quantization 0");
+                }
+
+                int attributeCount = readCount(MIN_ATTRIBUTE_SIZE, "attribute");
+                mColors = new int[attributeCount];
+                mWidths = new float[attributeCount];
+                for (int i = 0; i < attributeCount; i++) {
+                    mColors[i] = mBuffer.getInt();
+                    mWidths[i] = PixelUtil.toPixelFromDIP(mBuffer.getFloat());
+                }
+
+                mStrokeCount = readCount(MIN_STROKE_SIZE, "stroke");
+                opened = true;
+            } catch (BufferUnderflowException e) {
+                throw corrupt("truncated header");
+            } finally {
+                if (!opened) {
+                    mStream.close();
+                }
+            }
+        }
+
+        /**
+         * @param minSize smallest encoding of an item
+         */
+        private int readCount(int minSize, String what) throws IOException {
+            int count = PointCodec.getVarint(mBuffer);
+            if (count < 0 || count > mBuffer.remaining() / minSize) {
+                throw corrupt(String.format(Locale.ENGLISH, "%s count %d exceeds the file", what, count & 0xffffffffL));
+            }
+            return count;
+        }
+
+        private IOException corrupt(String reason) {
+            return new IOException(String.format(Locale.ENGLISH, "%s is corrupt: %s", mFile, reason));
+        }
+
+        int getStrokeCount() {
+            return mStrokeCount;
+        }
+
+        boolean hasNext() {
+            return mStrokeIndex < mStrokeCount;
+        }
+
+        StrokeRecord next() throws IOException {
+            try {
+                int pathId = PointCodec.unzigzag(PointCodec.getVarint(mBuffer));
+                int attribute = PointCodec.getVarint(mBuffer);
+                if (attribute < 0 || attribute >= mColors.length) {
+                    throw corrupt(String.format(Locale.ENGLISH, "path#%d refers to a missing attribute", pathId));
+                }
+                int pointCount = readCount(MIN_POINT_SIZE, "point");
+                ArrayList<PointF> points = new ArrayList<>(pointCount);
+                int x = 0, y = 0;
+                for (int j = 0; j < pointCount; j++) {
+                    x += PointCodec.unzigzag(PointCodec.getVarint(mBuffer));
+                    y += PointCodec.unzigzag(PointCodec.getVarint(mBuffer));
+                    points.add(new PointF(
+                            PixelUtil.toPixelFromDIP(x / mQuantization),
+                            PixelUtil.toPixelFromDIP(y / mQuantization)
+                    ));
+                }
+                mStrokeIndex++;
+                return new StrokeRecord(pathId, mColors[attribute], mWidths[attribute], points);
+            } catch (BufferUnderflowException e) {
+                throw corrupt(String.format(Locale.ENGLISH, "truncated at stroke %d of %d", mStrokeIndex, mStrokeCount));
+            }
+        }
+
+        void close() throws IOException {
+            mStream.close();
+        }
+    }
+
+    private static Long attributeKey(SceneSnapshot.StrokeSnapshot stroke) {
+        return ((long) stroke.strokeColor << 32) | (Float.floatToIntBits(stroke.strokeWidth) & 0xffffffffL);
+    }
+
+    private static int quantize(float px) {
+        return Math.round(PixelUtil.toDIPFromPixel(px) * QUANTIZATION);
+    }
+
+    /**
+     * buffers writes to a channel
+     */
+    private static class Writer {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private final FileChannel mChannel;
+
+        Writer(FileChannel channel) {
+            mChannel = channel;
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void putVarint(int value) throws IOException {
+            ensure(PointCodec.MAX_VARINT_SIZE);
+            PointCodec.putVarint(buffer, value);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                mChannel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.graphics.PointF;
+import android.graphics.RectF;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.StringDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+
+/**
+ * Geometry of eraser gestures, an eraser is a path colored {@link android.graphics.Color#TRANSPARENT}.
+ * Each eraser sample sweeps a capsule around the segment from the previous sample, with the eraser's stroke radius.
+ */
+class Eraser {
+
+    @Retention(RetentionPolicy.SOURCE)
+    @StringDef({
+            Mode.PIXEL,
+            Mode.OBJECT,
+            Mode.VECTOR
+    })
+    @interface Mode {
+        /**
+         * erasers clear pixels, they stay in the scene
+         */
+        String PIXEL = "pixel";
+        /**
+         * erasers remove the paths they touch and are removed once their interaction ends
+         */
+        String OBJECT = "object";
+        /**
+         * erasers cut the paths they cross into pieces and are removed once their interaction ends
+         */
+        String VECTOR = "vector";
+    }
+
+    private static final int BISECT_ITERATIONS = 12;
+    private static final int SAMPLES = 32;
+
+    /**
+     * @return the bounds of the capsule swept by the last eraser sample
+     */
+    static RectF getSampleBounds(PointF a, PointF b, float radius) {
+        RectF bounds = new RectF(Math.min(a.x, b.x), Math.min(a.y, b.y), Math.max(a.x, b.x), Math.max(a.y, b.y));
+        bounds.inset(-radius, -radius);
+        return bounds;
+    }
+
+    /**
+     * @param threshold the eraser radius plus the stroke radius, strokes closer than this overlap the eraser
+     * @return whether the stroke through `points` comes within `threshold` of the segment `ab`
+     */
+    static boolean touches(ArrayList<PointF> points, PointF a, PointF b, float threshold) {
+        float sqThreshold = threshold * threshold;
+        int count = points.size();
+        if (count == 1) {
+            return PathUtil.getSqSegmentDistance(points.get(0), a, b) <= sqThreshold;
+        }
+        for (int i = 1; i < count; i++) {
+            if (PathUtil.getSqSegmentsDistance(points.get(i - 1), points.get(i), a, b) <= sqThreshold) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * cuts the footprint of the segment `ab` out of the stroke through `points`,
+     * crossing points are found by bisection so pieces end on the footprint's edge
+     * @param threshold see {@link #touches}
+     * @return the remaining pieces, empty if the stroke was erased entirely, null if it wasn't touched
+     */
+    @Nullable
+    static ArrayList<ArrayList<PointF>> split(ArrayList<PointF> points, PointF a, PointF b, float threshold) {
+        float sqThreshold = threshold * threshold;
+        int count = points.size();
+        ArrayList<ArrayList<PointF>> pieces = new ArrayList<>();
+        if (count == 1) {
+            if (isInside(points.get(0), a, b, sqThreshold)) {
+                return pieces;
+            }
+            return null;
+        }
+
+        boolean didCut = false;
+        ArrayList<PointF> piece = new ArrayList<>();
+        PointF p = points.get(0);
+        boolean pInside = isInside(p, a, b, sqThreshold);
+        if (!pInside) {
+            piece.add(p);
+        } else {
+            didCut = true;
+        }
+
+        for (int i = 1; i < count; i++) {
+            PointF q = points.get(i);
+            boolean qInside = isInside(q, a, b, sqThreshold);
+            if (!pInside && !qInside) {
+                float t = PathUtil.getSqSegmentsDistance(p, q, a, b) <= sqThreshold ? findInside(p, q, a, b, sqThreshold) : -1;
+                if (t >= 0) {
+                    // the segment passes through the footprint
+                    didCut = true;
+                    piece.add(bisect(p, q, 0, t, a, b, sqThreshold));
+                    addPiece(pieces, piece);
+                    piece = new ArrayList<>();
+                    piece.add(bisect(p, q, 1, t, a, b, sqThreshold));
+                }
+                piece.add(q);
+            } else if (pInside && !qInside) {
+                piece = new ArrayList<>();
+                piece.add(bisect(p, q, 1, 0, a, b, sqThreshold));
+                piece.add(q);
+            } else if (!pInside) {
+                didCut = true;
+                piece.add(bisect(p, q, 0, 1, a, b, sqThreshold));
+                addPiece(pieces, piece);
+                piece = new ArrayList<>();
+            }
+            p = q;
+            pInside = qInside;
+        }
+        addPiece(pieces, piece);
+        return didCut ? pieces : null;
+    }
+
+    private static void addPiece(ArrayList<ArrayList<PointF>> pieces, ArrayList<PointF> piece) {
+        if (piece.size() >= 2) {
+            pieces.add(piece);
+        }
+    }
+
+    private static boolean isInside(PointF point, PointF a, PointF b, float sqThreshold) {
+        return PathUtil.getSqSegmentDistance(point, a, b) < sqThreshold;
+    }
+
+    private static PointF lerp(PointF p, PointF q, float t) {
+        return new PointF(p.x + (q.x - p.x) * t, p.y + (q.y - p.y) * t);
+    }
+
+    /**
+     * @return a parameter of `pq` inside the footprint, -1 if the segment only grazes it
+     */
+    private static float findInside(PointF p, PointF q, PointF a, PointF b, float sqThreshold) {
+        for (int i = 1; i < SAMPLES; i++) {
+            float t = i / (float) SAMPLES;
+            if (isInside(lerp(p, q, t), a, b, sqThreshold)) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the point on `pq` where the footprint's edge lies between the parameters `outside` and `inside`
+     */
+    private static PointF bisect(PointF p, PointF q, float outside, float inside, PointF a, PointF b, float sqThreshold) {
+        for (int i = 0; i < BISECT_ITERATIONS; i++) {
+            float t = (outside + inside) / 2;
+            if (isInside(lerp(p, q, t), a, b, sqThreshold)) {
+                inside = t;
+            } else {
+                outside = t;
+            }
+        }
+        return lerp(p, q, outside);
+    }
+}
@@ -0,0 +1,177 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.PorterDuff;
+import android.graphics.RectF;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.StringDef;
+
+import com.facebook.react.bridge.JSApplicationIllegalArgumentException;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.uimanager.PixelUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Locale;
+
+/**
+ * Renders a {@link SceneSnapshot} into a software bitmap and encodes it to a file, off the UI thread.
+ * PNGs are rendered in horizontal bands and streamed by {@link PngStreamEncoder} so peak memory is bounded by the band size.
+ * JPEG and WebP can only be encoded by {@link Bitmap#compress} from a single bitmap, so they are capped at {@link #MAX_BITMAP_PIXELS}.
+ */
+class ImageExporter {
+
+    @Retention(RetentionPolicy.SOURCE)
+    @StringDef({
+            Format.PNG,
+            Format.JPEG,
+            Format.WEBP
+    })
+    @interface Format {
+        String PNG = "png";
+        String JPEG = "jpeg";
+        String WEBP = "webp";
+    }
+
+    private static final int BAND_PIXELS = 1024 * 1024;
+    private static final int MAX_BITMAP_PIXELS = 4096 * 4096;
+
+    final @Format String format;
+    final int quality;
+    final float scale;
+    final boolean transparent;
+    @Nullable final ReadableMap region;
+
+    ImageExporter(@Nullable ReadableMap options) {
+        String format = options != null && options.hasKey("format") ? options.getString("format").toLowerCase(Locale.ENGLISH) : Format.PNG;
+        switch (format) {
+            case Format.PNG:
+            case Format.WEBP:
+                this.format = format;
+                break;
+            case Format.JPEG:
+            case "jpg":
+                this.format = Format.JPEG;
+                break;
+            default:
+                throw new JSApplicationIllegalArgumentException(String.format("Unsupported image format %s", format));
+        }
+        quality = options != null && options.hasKey("quality") ? (int) Math.round(options.getDouble("quality") * 100) : 100;
+        scale = options != null && options.hasKey("scale") ? (float) options.getDouble("scale") : 1;
+        transparent = !Format.JPEG.equals(this.format) && (options == null || !options.hasKey("transparent") || options.getBoolean("transparent"));
+        region = options != null && options.hasKey("region") ? options.getMap("region") : null;
+    }
+
+    String getExtension() {
+        return Format.JPEG.equals(format) ? "jpg" : format;
+    }
+
+    /**
+     * @return the region to export in canvas pixels, `region` is passed in DIP
+     */
+    RectF resolveRegion(SceneSnapshot snapshot) {
+        if (region == null) {
+            return new RectF(0, 0, snapshot.width, snapshot.height);
+        }
+        RectF rect = new RectF(
+                PixelUtil.toPixelFromDIP(region.getDouble("x")),
+                PixelUtil.toPixelFromDIP(region.getDouble("y")),
+                0,
+                0
+        );
+        rect.right = rect.left + PixelUtil.toPixelFromDIP(region.getDouble("width"));
+        rect.bottom = rect.top + PixelUtil.toPixelFromDIP(region.getDouble("height"));
+        return rect;
+    }
+
+    /**
+     * @return output size in pixels, `{ width, height }`
+     */
+    int[] export(SceneSnapshot snapshot, File file) throws IOException {
+        RectF rect = resolveRegion(snapshot);
+        int width = Math.round(rect.width() * scale);
+        int height = Math.round(rect.height() * scale);
+        if (width <= 0 || height <= 0) {
+            throw new JSApplicationIllegalArgumentException(String.format(Locale.ENGLISH, "Bad export size %dx%d", width, height));
+        }
+
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            if (Format.PNG.equals(format)) {
+                exportPng(snapshot, rect, width, height, out);
+            } else {
+                exportBitmap(snapshot, rect, width, height, out);
+            }
+        } finally {
+            out.close();
+        }
+        return new int[]{ width, height };
+    }
+
+    private void exportPng(SceneSnapshot snapshot, RectF rect, int width, int height, OutputStream out) throws IOException {
+        int bandHeight = Math.max(1, Math.min(height, BAND_PIXELS / width));
+        Bitmap band = Bitmap.createBitmap(width, bandHeight, Bitmap.Config.ARGB_8888);
+        int[] pixels = new int[width * bandHeight];
+        PngStreamEncoder encoder = new PngStreamEncoder(out, width, height, transparent);
+        try {
+            for (int top = 0; top < height; top += bandHeight) {
+                int rows = Math.min(bandHeight, height - top);
+                render(snapshot, rect, band, top);
+                band.getPixels(pixels, 0, width, 0, 0, width, rows);
+                encoder.writeRows(pixels, 0, rows);
+            }
+            encoder.finish();
+        } finally {
+            band.recycle();
+        }
+    }
+
+    private void exportBitmap(SceneSnapshot snapshot, RectF rect, int width, int height, OutputStream out) throws IOException {
+        if ((long) width * height > MAX_BITMAP_PIXELS) {
+            throw new JSApplicationIllegalArgumentException(String.format(
+                    Locale.ENGLISH,
+                    "%dx%d exceeds the max %s export size, use png or a smaller scale",
+                    width,
+                    height,
+                    format
+            ));
+        }
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        try {
+            render(snapshot, rect, bitmap, 0);
+            if (!bitmap.compress(getCompressFormat(), quality, out)) {
+                throw new IOException(String.format("Failed to encode %s", format));
+            }
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    private Bitmap.CompressFormat getCompressFormat() {
+        return Format.JPEG.equals(format) ? Bitmap.CompressFormat.JPEG : Bitmap.CompressFormat.WEBP;
+    }
+
+    /**
+     * renders the band of the output starting at row `top` into `bitmap`
+     */
+    private void render(SceneSnapshot snapshot, RectF rect, Bitmap bitmap, int top) {
+        bitmap.eraseColor(Color.TRANSPARENT);
+        Canvas canvas = new Canvas(bitmap);
+        canvas.translate(0, -top);
+        canvas.scale(scale, scale);
+        canvas.translate(-rect.left, -rect.top);
+        SceneRenderer.draw(canvas, snapshot.select(null));
+        if (!transparent) {
+            // paint behind the strokes so erasers reveal the background instead of transparency
+            canvas.drawColor(Color.WHITE, PorterDuff.Mode.DST_OVER);
+        }
+    }
+}
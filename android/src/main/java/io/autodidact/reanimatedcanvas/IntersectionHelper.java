@@ -1,9 +1,7 @@
 package io.autodidact.reanimatedcanvas;
 
 import android.annotation.TargetApi;
-import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.PointF;
 import android.graphics.Rect;
@@ -11,7 +9,6 @@ import android.graphics.RectF;
 import android.graphics.Region;
 
 import com.facebook.react.bridge.Arguments;
-import com.facebook.react.bridge.ReactContext;
 import com.facebook.react.bridge.WritableArray;
 
 import java.util.ArrayList;
@@ -19,16 +16,11 @@ import java.util.ArrayList;
 public class IntersectionHelper {
 
     private final RCanvas mView;
-    private boolean mDebug = false;
 
     public IntersectionHelper(RCanvas view) {
         mView = view;
     }
 
-    public void setDebug(boolean debug) {
-        mDebug = debug;
-    }
-
     private ArrayList<RPath> getPaths() {
         return mView.paths();
     }
@@ -38,7 +30,7 @@ public class IntersectionHelper {
     }
 
     private boolean shouldDrawDebug() {
-        return BuildConfig.DEBUG && mDebug;
+        return BuildConfig.DEBUG && mView.getDebugOverlay().isEnabled();
     }
 
     @TargetApi(19)
@@ -57,18 +49,23 @@ public class IntersectionHelper {
 
     @TargetApi(19)
     public boolean isPointOnPath(PointF point, int pathId){
-        if(isTransparent(point, pathId)) {
-            return false;
-        }
-        else {
-            RPath mPath = getPaths().get(getIndex(pathId));
-            if (shouldDrawDebug()) DebugRect.draw(mPath, point);
-            return mPath.isPointOnPath(point);
+        long start = CanvasMetrics.now();
+        try {
+            if (isTransparent(point, pathId)) {
+                return false;
+            } else {
+                RPath mPath = getPaths().get(getIndex(pathId));
+                if (shouldDrawDebug()) mView.getDebugOverlay().addProbe(mPath, point);
+                return mPath.isPointOnPath(point);
+            }
+        } finally {
+            mView.getMetrics().onHitTest(start);
         }
     }
 
     @TargetApi(19)
     public WritableArray isPointOnPath(PointF point){
+        long start = CanvasMetrics.now();
         WritableArray array = Arguments.createArray();
         RPath mPath;
         ArrayList<RPath> paths = getPaths();
@@ -77,7 +74,7 @@ public class IntersectionHelper {
         if (shouldDrawDebug()) {
             for (int i = 0; i < paths.size(); i++) {
                 mPath = paths.get(i);
-                DebugRect.draw(mPath, point);
+                mView.getDebugOverlay().addProbe(mPath, point);
             }
         }
 
@@ -89,6 +86,7 @@ public class IntersectionHelper {
             }
         }
 
+        mView.getMetrics().onHitTest(start);
         return array;
     }
 
@@ -132,63 +130,4 @@ public class IntersectionHelper {
             return !region1.quickReject(region2) && region1.op(region2, Region.Op.INTERSECT);
         }
     }
-
-    static class DebugRect extends RPath {
-        private RectF mRect;
-        private Paint mPaint;
-        private String mString;
-
-        DebugRect(RCanvas view, PointF point) {
-            super((ReactContext) view.getContext());
-            mRect = Utility.applyHitSlop(point, view.mHitSlop);
-            mString = "RCanvas";
-            setStrokeColor(Color.MAGENTA);
-            setStrokeWidth(10);
-            mPaint = getPaint();
-        }
-
-        DebugRect(RPath view, PointF point) {
-            super((ReactContext) view.getContext());
-            mRect = Utility.applyHitSlop(point, view.getHitSlop());
-            mString = String.valueOf(view.getPathId());
-            setStrokeColor(Color.BLUE);
-            setStrokeWidth(10);
-            mPaint = getPaint();
-        }
-
-        @Override
-        protected void onDraw(Canvas canvas) {
-            super.onDraw(canvas);
-            canvas.drawOval(mRect, mPaint);
-            mPaint.setStrokeWidth(1);
-            mPaint.setTextSize(20);
-            mPaint.setColor(Color.BLACK);
-            canvas.drawText(mString, mRect.left, mRect.top, mPaint);
-        }
-
-        static void draw(final RCanvas view, final PointF point) {
-            draw(view, new DebugRect(view, point));
-        }
-
-        static void draw(final RPath view, final PointF point) {
-            if (view.getParent() instanceof RCanvas) {
-                draw((RCanvas) view.getParent(), new DebugRect(view, point));
-            }
-        }
-
-        private static void draw(final RCanvas view, final DebugRect debugRect) {
-            view.addView(debugRect);
-            view.postInvalidateOnAnimation();
-            view.postDelayed(
-                new Runnable() {
-                    @Override
-                    public void run() {
-                        view.removeView(debugRect);
-                        view.postInvalidateOnAnimation();
-                    }
-                },
-                1500
-            );
-        }
-    }
 }
@@ -0,0 +1,47 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.graphics.PointF;
+
+import java.util.ArrayList;
+
+/**
+ * Selects and builds simplified stroke geometry for zoomed out rendering.
+ * Level `i` drops points deviating less than {@link #TOLERANCES}[i] document pixels from the stroke (Douglas-Peucker).
+ * Quadratic segments stay within the hull of their control points, so the simplified curve deviates by at most the tolerance.
+ */
+class LevelOfDetail {
+
+    /**
+     * full detail
+     */
+    static final int NONE = -1;
+    static final float[] TOLERANCES = { 1, 2, 4, 8, 16 };
+    /**
+     * shorter strokes are cheap enough to draw in full
+     */
+    static final int MIN_POINTS = 64;
+
+    /**
+     * @param scale document to view scale
+     * @return the coarsest level whose tolerance stays below one device pixel, or {@link #NONE}
+     */
+    static int selectLevel(float scale, int pointCount) {
+        if (pointCount < MIN_POINTS) return NONE;
+        int level = NONE;
+        for (int i = 0; i < TOLERANCES.length && TOLERANCES[i] * scale < 1; i++) {
+            level = i;
+        }
+        return level;
+    }
+
+    static ArrayList<PointF> simplify(ArrayList<PointF> points, float tolerance) {
+        int count = points.size();
+        if (count < 3) return new ArrayList<>(points);
+        boolean[] keep = Geometry.simplify(PathUtil.toArray(points), count, tolerance);
+        ArrayList<PointF> out = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            if (keep[i]) out.add(points.get(i));
+        }
+        return out;
+    }
+}
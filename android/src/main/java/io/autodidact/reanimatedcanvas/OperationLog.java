@@ -0,0 +1,98 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.graphics.PointF;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.JSApplicationIllegalArgumentException;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.uimanager.PixelUtil;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+
+import static io.autodidact.reanimatedcanvas.RCanvasManager.TAG;
+
+/**
+ * Decodes and dedups the operation logs applied by {@link RCanvasHandler#applyOps}, e.g. remote edits of a shared drawing.
+ * An op is a flat array `[seq, type, pathId, ...args]`:
+ * `[seq, ADD, id, strokeColor, strokeWidth, points]`, `[seq, APPEND, id, points]`,
+ * `[seq, SET, id, attributes]` and `[seq, REMOVE, id]`,
+ * points are interleaved as `[x0, y0, x1, y1, ...]`, in dip.
+ * Sequence numbers increase per origin, ops at or below the last applied sequence number of their origin are skipped,
+ * so a log may be resent or overlap the previous one.
+ * A sequence number is committed only once its op applied, so a malformed op doesn't block a corrected resend.
+ * Confined to the UI thread.
+ */
+class OperationLog {
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({
+            Op.ADD,
+            Op.APPEND,
+            Op.SET,
+            Op.REMOVE
+    })
+    @interface Op {
+        /**
+         * adds a stroke, or replaces the stroke with the same id
+         */
+        int ADD = 0;
+        int APPEND = 1;
+        /**
+         * accepts the attributes of `setAttributes`
+         */
+        int SET = 2;
+        int REMOVE = 3;
+    }
+
+    static final int SEQ = 0;
+    static final int TYPE = 1;
+    static final int PATH_ID = 2;
+
+    private static final String DEFAULT_ORIGIN = "";
+
+    private final HashMap<String, Long> mLastSeq = new HashMap<>();
+
+    /**
+     * @return true if the op was applied already
+     */
+    boolean isApplied(@Nullable String origin, ReadableArray op) {
+        Long last = mLastSeq.get(origin != null ? origin : DEFAULT_ORIGIN);
+        return last != null && (long) op.getDouble(SEQ) <= last;
+    }
+
+    /**
+     * marks the op as applied, call once it was applied successfully so a failed op may be resent
+     */
+    void commit(@Nullable String origin, ReadableArray op) {
+        mLastSeq.put(origin != null ? origin : DEFAULT_ORIGIN, (long) op.getDouble(SEQ));
+    }
+
+    static @Op int getType(ReadableArray op) {
+        int type = op.getInt(TYPE);
+        if (type < Op.ADD || type > Op.REMOVE) {
+            throw new JSApplicationIllegalArgumentException(String.format(Locale.ENGLISH, "%s: unknown op type %d", TAG, type));
+        }
+        return type;
+    }
+
+    /**
+     * @param points interleaved as `[x0, y0, x1, y1, ...]`, in dip
+     */
+    static ArrayList<PointF> parsePoints(ReadableArray points) {
+        int count = points.size() / 2;
+        ArrayList<PointF> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            out.add(new PointF(
+                    PixelUtil.toPixelFromDIP(points.getDouble(i * 2)),
+                    PixelUtil.toPixelFromDIP(points.getDouble(i * 2 + 1))
+            ));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,223 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.graphics.Path;
+import android.graphics.PointF;
+import android.os.Process;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Decodes point arrays and builds {@link Path} objects on a bounded worker pool
+ * so bulk updates don't stall the UI thread.
+ * Results are handed back through {@link Callback} and must be applied on the UI thread by the caller.
+ */
+class PathBuilder {
+
+    /**
+     * updates carrying fewer points than this are cheaper to build synchronously
+     */
+    static final int BACKGROUND_POINTS_THRESHOLD = 1000;
+    private static final int POOL_SIZE = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() - 1, 4));
+
+    private static ExecutorService sExecutor;
+
+    static synchronized ExecutorService getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newFixedThreadPool(POOL_SIZE, new ThreadFactory() {
+                private final AtomicInteger mCount = new AtomicInteger();
+
+                @Override
+                public Thread newThread(@NonNull final Runnable runnable) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "RCanvasPathBuilder-" + mCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+
+    static class Result {
+        final ArrayList<PointF> points;
+        final Path path;
+
+        Result(ArrayList<PointF> points, Path path) {
+            this.points = points;
+            this.path = path;
+        }
+
+        static Result obtain(ArrayList<PointF> points) {
+            return new Result(points, PathUtil.obtain(points));
+        }
+    }
+
+    interface Callback {
+        /**
+         * invoked on a worker thread once all paths are built
+         * @param results indexed the same as the entries passed to `buildAll`, null for entries without points
+         * @param pointCount total number of points decoded
+         * @param buildTime wall time in ms, from submission to completion
+         */
+        void onComplete(Result[] results, int pointCount, long buildTime);
+
+        /**
+         * invoked on a worker thread instead of {@link #onComplete} if decoding or building failed
+         */
+        void onError(Throwable e);
+    }
+
+    /**
+     * counts the points carried by an `UPDATE` payload
+     */
+    static int countPoints(ReadableArray pathsUpdate) {
+        int count = 0;
+        for (int i = 0; i < pathsUpdate.size(); i++) {
+            ReadableArray points = getPoints(pathsUpdate.getMap(i));
+            if (points != null) {
+                count += points.size();
+            }
+        }
+        return count;
+    }
+
+    static boolean shouldBuildInBackground(ReadableArray pathsUpdate) {
+        return countPoints(pathsUpdate) >= BACKGROUND_POINTS_THRESHOLD;
+    }
+
+    @Nullable
+    private static ReadableArray getPoints(ReadableMap entry) {
+        if (!entry.hasKey("value") || entry.isNull("value")) {
+            return null;
+        }
+        ReadableMap update = entry.getMap("value");
+        return update.hasKey("points") && !update.isNull("points") ? update.getArray("points") : null;
+    }
+
+    /**
+     * fans out point decoding and path building of an `UPDATE` payload across the worker pool
+     */
+    static void buildAll(final ReadableArray pathsUpdate, final Callback callback) {
+        Batch batch = new Batch(pathsUpdate.size(), callback);
+        for (int i = 0; i < pathsUpdate.size(); i++) {
+            final ReadableArray points = getPoints(pathsUpdate.getMap(i));
+            if (points == null) continue;
+            batch.submit(i, new PointSource() {
+                @Override
+                public ArrayList<PointF> get() {
+                    return Utility.processPointArray(points);
+                }
+            });
+        }
+        batch.seal();
+    }
+
+    /**
+     * builds the paths of already decoded strokes across the worker pool
+     */
+    static void buildAll(final ArrayList<StrokeRecord> records, final Callback callback) {
+        Batch batch = new Batch(records.size(), callback);
+        for (int i = 0; i < records.size(); i++) {
+            final ArrayList<PointF> points = records.get(i).points;
+            batch.submit(i, new PointSource() {
+                @Override
+                public ArrayList<PointF> get() {
+                    return points;
+                }
+            });
+        }
+        batch.seal();
+    }
+
+    private interface PointSource {
+        ArrayList<PointF> get();
+    }
+
+    /**
+     * invokes the callback once every submitted task and {@link #seal()} have completed,
+     * failures are recorded and reported instead of escaping on the worker thread
+     */
+    private static class Batch {
+        private final Result[] mResults;
+        private final Callback mCallback;
+        private final AtomicInteger mPending = new AtomicInteger(1);
+        private final AtomicInteger mPointCount = new AtomicInteger();
+        private final AtomicReference<Throwable> mError = new AtomicReference<>();
+        private final long mStart = SystemClock.uptimeMillis();
+
+        Batch(int size, Callback callback) {
+            mResults = new Result[size];
+            mCallback = callback;
+        }
+
+        void submit(final int index, final PointSource source) {
+            mPending.incrementAndGet();
+            getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        ArrayList<PointF> points = source.get();
+                        mPointCount.addAndGet(points.size());
+                        mResults[index] = Result.obtain(points);
+                    } catch (Throwable e) {
+                        mError.compareAndSet(null, e);
+                    } finally {
+                        done();
+                    }
+                }
+            });
+        }
+
+        void seal() {
+            done();
+        }
+
+        private void done() {
+            if (mPending.decrementAndGet() == 0) {
+                Throwable error = mError.get();
+                if (error != null) {
+                    mCallback.onError(error);
+                } else {
+                    mCallback.onComplete(mResults, mPointCount.get(), SystemClock.uptimeMillis() - mStart);
+                }
+            }
+        }
+    }
+
+    /**
+     * builds a single path off the UI thread
+     */
+    static void build(final ArrayList<PointF> points, final Callback callback) {
+        final long start = SystemClock.uptimeMillis();
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                Result result;
+                try {
+                    result = Result.obtain(points);
+                } catch (Throwable e) {
+                    callback.onError(e);
+                    return;
+                }
+                callback.onComplete(new Result[]{ result }, points.size(), SystemClock.uptimeMillis() - start);
+            }
+        });
+    }
+}
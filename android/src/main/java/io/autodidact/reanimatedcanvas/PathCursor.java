@@ -0,0 +1,73 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.os.SystemClock;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+/**
+ * Streams the strokes of a {@link SceneSnapshot} in chunks of at most `maxPoints` points,
+ * splitting long strokes across chunks.
+ * Not thread safe, {@link RCanvasModule} confines cursors to its query executor.
+ */
+class PathCursor {
+
+    private final int mTag;
+    private final SceneSnapshot.StrokeSnapshot[] mStrokes;
+    private final int mMaxPoints;
+    private int mStrokeIndex = 0;
+    private int mPointIndex = 0;
+    private long mLastAccess;
+
+    /**
+     * @param tag the canvas the strokes were taken from
+     */
+    PathCursor(int tag, SceneSnapshot.StrokeSnapshot[] strokes, int maxPoints) {
+        mTag = tag;
+        mStrokes = strokes;
+        mMaxPoints = Math.max(1, maxPoints);
+        mLastAccess = SystemClock.uptimeMillis();
+    }
+
+    int getTag() {
+        return mTag;
+    }
+
+    /**
+     * @return uptime of the last read
+     */
+    long getLastAccess() {
+        return mLastAccess;
+    }
+
+    boolean isDone() {
+        return mStrokeIndex >= mStrokes.length;
+    }
+
+    /**
+     * @return `{ paths, done }`, each path fragment carries `fromPointIndex` and `nextPointIndex`
+     */
+    WritableMap next() {
+        mLastAccess = SystemClock.uptimeMillis();
+        WritableArray paths = Arguments.createArray();
+        int budget = mMaxPoints;
+
+        while (!isDone() && budget > 0) {
+            SceneSnapshot.StrokeSnapshot stroke = mStrokes[mStrokeIndex];
+            int count = Math.min(budget, stroke.getPointCount() - mPointIndex);
+            paths.pushMap(stroke.toWritableMap(mPointIndex, count));
+            mPointIndex += count;
+            budget -= Math.max(count, 1);
+            if (mPointIndex >= stroke.getPointCount()) {
+                mStrokeIndex++;
+                mPointIndex = 0;
+            }
+        }
+
+        WritableMap chunk = Arguments.createMap();
+        chunk.putArray("paths", paths);
+        chunk.putBoolean("done", isDone());
+        return chunk;
+    }
+}
@@ -2,43 +2,48 @@ package io.autodidact.reanimatedcanvas;
 
 import android.graphics.Path;
 import android.graphics.PointF;
+import android.graphics.RectF;
 
 import java.util.ArrayList;
 
 class PathUtil {
 
-    static Path obtain(ArrayList<PointF> points) {
-        int pointsCount = points.size();
-        Path path = new Path();
+    /**
+     * adapts an android {@link Path} to the segments emitted by {@link QuadSmoothing}
+     */
+    private static class PathSink implements QuadSmoothing.Sink {
+        private final Path mPath;
+
+        PathSink(Path path) {
+            mPath = path;
+        }
+
+        @Override
+        public void moveTo(float x, float y) {
+            mPath.moveTo(x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            mPath.lineTo(x, y);
+        }
 
-        for(int i = 0; i < pointsCount; i++) {
-            if (pointsCount >= 3 && i >= 2) {
-                PointF a = points.get(i - 2);
-                PointF b = points.get(i - 1);
-                PointF c = points.get(i);
-                PointF prevMid = midPoint(a, b);
-                PointF currentMid = midPoint(b, c);
-
-                // Draw a curve
-                path.moveTo(prevMid.x, prevMid.y);
-                path.quadTo(b.x, b.y, currentMid.x, currentMid.y);
-            } else if (pointsCount >= 2 && i >= 1) {
-                PointF a = points.get(i - 1);
-                PointF b = points.get(i);
-                PointF mid = midPoint(a, b);
-
-                // Draw a line to the middle of points a and b
-                // This is so the next draw which uses a curve looks correct and continues from there
-                path.moveTo(a.x, a.y);
-                path.lineTo(mid.x, mid.y);
-            } else {
-                PointF a = points.get(i);
-
-                // Draw a single point
-                path.moveTo(a.x, a.y);
-                path.lineTo(a.x, a.y);
-            }
+        @Override
+        public void quadTo(float x1, float y1, float x2, float y2) {
+            mPath.quadTo(x1, y1, x2, y2);
         }
+    }
+
+    static Path obtain(ArrayList<PointF> points) {
+        return obtain(toArray(points));
+    }
+
+    /**
+     * @param points interleaved as `[x0, y0, x1, y1, ...]`
+     */
+    static Path obtain(float[] points) {
+        Path path = new Path();
+        QuadSmoothing.emit(points, points.length / 2, new PathSink(path));
         return path;
     }
 
@@ -63,9 +68,72 @@ class PathUtil {
     }
 
     static void addPointToPath(Path path, PointF tPoint, PointF pPoint, PointF point) {
-        PointF mid1 = new PointF((pPoint.x + tPoint.x) * 0.5f, (pPoint.y + tPoint.y) * 0.5f);
-        PointF mid2 = new PointF((point.x + pPoint.x) * 0.5f, (point.y + pPoint.y) * 0.5f);
-        path.moveTo(mid1.x, mid1.y);
-        path.quadTo(pPoint.x, pPoint.y, mid2.x, mid2.y);
+        QuadSmoothing.emitSegment(tPoint.x, tPoint.y, pPoint.x, pPoint.y, point.x, point.y, new PathSink(path));
+    }
+
+    /**
+     * see {@link Geometry#intersectsOval}
+     * @param points interleaved as `[x0, y0, x1, y1, ...]`
+     */
+    static boolean isPointOnPath(float[] points, PointF point, RectF hitSlop) {
+        RectF hitRect = Utility.applyHitSlop(point, hitSlop);
+        return Geometry.intersectsOval(points, points.length / 2, hitRect.left, hitRect.top, hitRect.right, hitRect.bottom);
+    }
+
+    /**
+     * sets `out` to the bounds of `points`, quadratic segments are contained by their control points
+     */
+    static void computeBounds(ArrayList<PointF> points, RectF out) {
+        int pointsCount = points.size();
+        if (pointsCount == 0) {
+            out.setEmpty();
+            return;
+        }
+        PointF p = points.get(0);
+        out.set(p.x, p.y, p.x, p.y);
+        for (int i = 1; i < pointsCount; i++) {
+            p = points.get(i);
+            out.union(p.x, p.y);
+        }
+    }
+
+    /**
+     * mirrors {@link Utility#applyHitSlop}, a point outside the result can't hit a path bound by `pointBounds`
+     */
+    static RectF getHitBounds(RectF pointBounds, RectF hitSlop) {
+        return new RectF(
+                pointBounds.left - hitSlop.right,
+                pointBounds.top - hitSlop.bottom,
+                pointBounds.right + hitSlop.left,
+                pointBounds.bottom + hitSlop.top
+        );
+    }
+
+    /**
+     * @return `points` interleaved as `[x0, y0, x1, y1, ...]`, see {@link Geometry}
+     */
+    static float[] toArray(ArrayList<PointF> points) {
+        int pointsCount = points.size();
+        float[] out = new float[pointsCount * 2];
+        for (int i = 0; i < pointsCount; i++) {
+            PointF p = points.get(i);
+            out[i * 2] = p.x;
+            out[i * 2 + 1] = p.y;
+        }
+        return out;
+    }
+
+    /**
+     * see {@link Geometry#getSqSegmentDistance}
+     */
+    static float getSqSegmentDistance(PointF p, PointF a, PointF b) {
+        return Geometry.getSqSegmentDistance(p.x, p.y, a.x, a.y, b.x, b.y);
+    }
+
+    /**
+     * see {@link Geometry#getSqSegmentsDistance}
+     */
+    static float getSqSegmentsDistance(PointF a, PointF b, PointF c, PointF d) {
+        return Geometry.getSqSegmentsDistance(a.x, a.y, b.x, b.y, c.x, c.y, d.x, d.y);
     }
 }
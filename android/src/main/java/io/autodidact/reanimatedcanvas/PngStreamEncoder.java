@@ -0,0 +1,136 @@
+package io.autodidact.reanimatedcanvas;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Encodes a PNG row by row, so an image never has to be held in memory as a whole.
+ * Rows are passed as non premultiplied ARGB color ints, as returned by `Bitmap.getPixels`.
+ */
+class PngStreamEncoder {
+
+    private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n' };
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final int IDAT_SIZE = 64 * 1024;
+    private static final int COLOR_TYPE_RGB = 2;
+    private static final int COLOR_TYPE_RGBA = 6;
+
+    private final OutputStream mOut;
+    private final int mWidth;
+    private final int mHeight;
+    private final boolean mAlpha;
+    private final byte[] mRow;
+    private final DeflaterOutputStream mDeflater;
+    private final Deflater mDeflaterImpl;
+    private int mRowsWritten = 0;
+
+    PngStreamEncoder(OutputStream out, int width, int height, boolean alpha) throws IOException {
+        mOut = out;
+        mWidth = width;
+        mHeight = height;
+        mAlpha = alpha;
+        mRow = new byte[1 + width * (alpha ? 4 : 3)];
+        mDeflaterImpl = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        mDeflater = new DeflaterOutputStream(new IdatOutputStream(), mDeflaterImpl, IDAT_SIZE);
+
+        mOut.write(SIGNATURE);
+        ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        writeInt(header, width);
+        writeInt(header, height);
+        header.write(8);
+        header.write(alpha ? COLOR_TYPE_RGBA : COLOR_TYPE_RGB);
+        header.write(0);
+        header.write(0);
+        header.write(0);
+        writeChunk("IHDR", header.toByteArray(), header.size());
+    }
+
+    /**
+     * @param pixels `rowCount` rows of `width` pixels, starting at `offset`
+     */
+    void writeRows(int[] pixels, int offset, int rowCount) throws IOException {
+        for (int y = 0; y < rowCount; y++) {
+            int i = 1;
+            int rowStart = offset + y * mWidth;
+            for (int x = 0; x < mWidth; x++) {
+                int color = pixels[rowStart + x];
+                mRow[i++] = (byte) (color >> 16);
+                mRow[i++] = (byte) (color >> 8);
+                mRow[i++] = (byte) color;
+                if (mAlpha) {
+                    mRow[i++] = (byte) (color >>> 24);
+                }
+            }
+            mDeflater.write(mRow);
+        }
+        mRowsWritten += rowCount;
+    }
+
+    void finish() throws IOException {
+        if (mRowsWritten != mHeight) {
+            throw new IOException("PNG row count mismatch, wrote " + mRowsWritten + " of " + mHeight);
+        }
+        mDeflater.finish();
+        mDeflater.flush();
+        mDeflaterImpl.end();
+        writeChunk("IEND", new byte[0], 0);
+        mOut.flush();
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        writeInt(mOut, length);
+        mOut.write(typeBytes);
+        mOut.write(data, 0, length);
+        writeInt(mOut, (int) crc.getValue());
+    }
+
+    private static void writeInt(OutputStream out, int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    /**
+     * wraps compressed data into IDAT chunks
+     */
+    private class IdatOutputStream extends OutputStream {
+        private final byte[] mBuffer = new byte[IDAT_SIZE];
+        private int mCount = 0;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (mCount == mBuffer.length) flush();
+            mBuffer[mCount++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (mCount == mBuffer.length) flush();
+                int n = Math.min(len, mBuffer.length - mCount);
+                System.arraycopy(b, off, mBuffer, mCount, n);
+                mCount += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (mCount > 0) {
+                writeChunk("IDAT", mBuffer, mCount);
+                mCount = 0;
+            }
+        }
+    }
+}
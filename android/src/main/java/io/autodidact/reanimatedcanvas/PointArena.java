@@ -0,0 +1,218 @@
+package io.autodidact.reanimatedcanvas;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+
+/**
+ * Allocates encoded point data from direct {@link ByteBuffer} slabs, outside of the java heap.
+ * Allocations are rounded up to a power of two size class, freed slices are reused by the next allocation of their class
+ * before the current slab is bumped, and a slab is dropped once everything allocated from it was freed,
+ * so the reserved bytes follow the live document rather than the edit history.
+ * Freeing is explicit and must happen exactly once per allocation, see {@link CompactPoints#release()}.
+ * A slice freed while read off the UI thread is reused only once its readers are done, see {@link CompactPoints#share()}.
+ * Confined to the UI thread.
+ */
+class PointArena {
+
+    private static final int SLAB_SIZE = 1024 * 1024;
+    private static final int MIN_CLASS_SHIFT = 4;
+    /**
+     * larger allocations get a dedicated slab
+     */
+    private static final int MAX_CLASS_SIZE = SLAB_SIZE / 4;
+    private static final int CLASS_COUNT = Integer.numberOfTrailingZeros(MAX_CLASS_SIZE) - MIN_CLASS_SHIFT + 1;
+
+    static class Slab {
+        final ByteBuffer buffer;
+        final boolean dedicated;
+        private int mLiveBytes = 0;
+
+        Slab(int capacity, boolean dedicated) {
+            buffer = ByteBuffer.allocateDirect(capacity);
+            this.dedicated = dedicated;
+        }
+    }
+
+    static class Slice {
+        final Slab slab;
+        final int offset;
+        /**
+         * bytes reserved for the slice, its buffer's limit is the size allocated
+         */
+        final int capacity;
+        final ByteBuffer buffer;
+
+        Slice(Slab slab, int offset, int capacity, int size) {
+            this.slab = slab;
+            this.offset = offset;
+            this.capacity = capacity;
+            ByteBuffer view = slab.buffer.duplicate();
+            view.limit(offset + size);
+            view.position(offset);
+            buffer = view.slice();
+        }
+    }
+
+    private static class Pending {
+        final Slice slice;
+        final CompactPoints points;
+
+        Pending(Slice slice, CompactPoints points) {
+            this.slice = slice;
+            this.points = points;
+        }
+    }
+
+    private final ArrayList<Slab> mSlabs = new ArrayList<>();
+    @SuppressWarnings("unchecked")
+    private final ArrayList<Slice>[] mFree = new ArrayList[CLASS_COUNT];
+    private final ArrayList<Pending> mPending = new ArrayList<>();
+    private Slab mCurrent;
+    private long mLiveBytes = 0;
+    private long mFreeBytes = 0;
+
+    PointArena() {
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            mFree[i] = new ArrayList<>();
+        }
+    }
+
+    private static int sizeClass(int size) {
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(size, 1 << MIN_CLASS_SHIFT) - 1);
+        return shift - MIN_CLASS_SHIFT;
+    }
+
+    /**
+     * @return a slice holding a copy of the remaining bytes of `data`
+     */
+    Slice allocate(ByteBuffer data) {
+        reclaim();
+        int size = data.remaining();
+        Slice slice;
+        if (size > MAX_CLASS_SIZE) {
+            // dedicated, so large strokes don't waste the current slab
+            Slab slab = new Slab(size, true);
+            mSlabs.add(slab);
+            slice = new Slice(slab, 0, size, size);
+        } else {
+            int sizeClass = sizeClass(size);
+            int capacity = 1 << (sizeClass + MIN_CLASS_SHIFT);
+            ArrayList<Slice> free = mFree[sizeClass];
+            if (!free.isEmpty()) {
+                Slice reused = free.remove(free.size() - 1);
+                mFreeBytes -= capacity;
+                slice = new Slice(reused.slab, reused.offset, capacity, size);
+            } else {
+                if (mCurrent == null || mCurrent.buffer.remaining() < capacity) {
+                    Slab previous = mCurrent;
+                    mCurrent = new Slab(SLAB_SIZE, false);
+                    mSlabs.add(mCurrent);
+                    if (previous != null && previous.mLiveBytes == 0) {
+                        dropSlab(previous);
+                    }
+                }
+                int offset = mCurrent.buffer.position();
+                mCurrent.buffer.position(offset + capacity);
+                slice = new Slice(mCurrent, offset, capacity, size);
+            }
+        }
+        slice.buffer.put(data);
+        slice.buffer.flip();
+        slice.slab.mLiveBytes += slice.capacity;
+        mLiveBytes += slice.capacity;
+        return slice;
+    }
+
+    /**
+     * @param points holding the slice, it is reused only once `points` has no reader left, pass null if it was never read off the UI thread
+     */
+    void free(Slice slice, @Nullable CompactPoints points) {
+        if (points != null && points.hasReaders()) {
+            mPending.add(new Pending(slice, points));
+        } else {
+            recycle(slice);
+        }
+    }
+
+    /**
+     * recycles pending slices whose readers are done
+     */
+    private void reclaim() {
+        for (int i = mPending.size() - 1; i >= 0; i--) {
+            Pending pending = mPending.get(i);
+            if (!pending.points.hasReaders()) {
+                mPending.set(i, mPending.get(mPending.size() - 1));
+                mPending.remove(mPending.size() - 1);
+                recycle(pending.slice);
+            }
+        }
+    }
+
+    private void recycle(Slice slice) {
+        Slab slab = slice.slab;
+        slab.mLiveBytes -= slice.capacity;
+        mLiveBytes -= slice.capacity;
+        if (slab.mLiveBytes == 0 && slab != mCurrent) {
+            dropSlab(slab);
+        } else if (!slab.dedicated) {
+            mFree[sizeClass(slice.capacity)].add(slice);
+            mFreeBytes += slice.capacity;
+        }
+    }
+
+    /**
+     * drops an empty slab along with its free slices
+     */
+    private void dropSlab(Slab slab) {
+        mSlabs.remove(slab);
+        if (slab.dedicated) return;
+        for (ArrayList<Slice> free: mFree) {
+            Iterator<Slice> iterator = free.iterator();
+            while (iterator.hasNext()) {
+                Slice slice = iterator.next();
+                if (slice.slab == slab) {
+                    iterator.remove();
+                    mFreeBytes -= slice.capacity;
+                }
+            }
+        }
+    }
+
+    /**
+     * drops every slab, outstanding slices must not be read afterwards
+     */
+    void release() {
+        mSlabs.clear();
+        for (ArrayList<Slice> free: mFree) {
+            free.clear();
+        }
+        mPending.clear();
+        mCurrent = null;
+        mLiveBytes = 0;
+        mFreeBytes = 0;
+    }
+
+    /**
+     * `{ slabs, bytes, liveBytes, freeBytes }`, bytes are reserved outside of the java heap,
+     * free bytes are ready for reuse, the rest of the reserved bytes are still being read or were never allocated
+     */
+    WritableMap getStats() {
+        reclaim();
+        long bytes = 0;
+        for (Slab slab: mSlabs) {
+            bytes += slab.buffer.capacity();
+        }
+        WritableMap out = Arguments.createMap();
+        out.putInt("slabs", mSlabs.size());
+        out.putDouble("bytes", bytes);
+        out.putDouble("liveBytes", mLiveBytes);
+        out.putDouble("freeBytes", mFreeBytes);
+        return out;
+    }
+}
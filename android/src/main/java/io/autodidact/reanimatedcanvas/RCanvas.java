@@ -1,7 +1,16 @@
 package io.autodidact.reanimatedcanvas;
 
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
 import android.graphics.PointF;
+import android.graphics.Rect;
 import android.graphics.RectF;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+import android.view.ViewParent;
 
 import androidx.annotation.Nullable;
 
@@ -12,6 +21,9 @@ import com.facebook.react.uimanager.ThemedReactContext;
 import com.facebook.react.views.view.ReactViewGroup;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Locale;
 import java.util.Stack;
 
@@ -22,19 +34,352 @@ import static io.autodidact.reanimatedcanvas.RCanvasManager.TAG;
 public class RCanvas extends ReactViewGroup {
 
     protected ArrayList<RPath> mPaths = new ArrayList<>();
+    /**
+     * mirror {@link #mPaths} for O(1) lookups, mutate them through {@link #registerPath}, {@link #unregisterPaths} and {@link #insertPath}
+     */
+    private final SparseArray<RPath> mPathsById = new SparseArray<>();
+    private final SparseIntArray mPathIndices = new SparseIntArray();
     protected ArrayList<Integer> mInteractionContainer = new ArrayList<>();
     protected RectF mHitSlop = new RectF();
     private @ResizeMode String mResizeMode = ResizeMode.NONE;
     private RPath mNextPath;
     protected Stack<RCanvasState> mStateStack;
     private final IntersectionHelper mIntersectionHelper;
+    private final SampleRingBuffer mSampleBuffer;
+    private SceneSnapshot mSnapshot;
+    /**
+     * maps document space, in which paths are stored, to view space
+     */
+    private final Matrix mViewport = new Matrix();
+    private final Matrix mInverseViewport = new Matrix();
+    private float mViewportScale = 1;
+    private float mViewportTranslateX = 0;
+    private float mViewportTranslateY = 0;
+    /**
+     * the part of the document that is visible, in document space
+     */
+    private final RectF mVisibleRect = new RectF();
+    private final CommittedLayer mCommittedLayer = new CommittedLayer(this);
+    private boolean mAutoLayer = true;
+    private final SpatialIndex mSpatialIndex = new SpatialIndex(new Comparator<RPath>() {
+        @Override
+        public int compare(RPath a, RPath b) {
+            return getPathIndex(a.getPathId()) - getPathIndex(b.getPathId());
+        }
+    });
+    private final CanvasMetrics mMetrics = new CanvasMetrics();
+    private final DebugOverlay mDebugOverlay = new DebugOverlay(this);
+    private final PointArena mPointArena = new PointArena();
+    private final VersionLog mVersionLog = new VersionLog();
+    private boolean mOffHeapPoints = false;
+    private @Nullable TraceRecorder mTraceRecorder;
+    private boolean mReplaying = false;
+    private final ComponentCallbacks2 mMemoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            trimMemory(level);
+        }
+
+        @Override
+        public void onLowMemory() {
+            trimMemory(CanvasMetrics.TRIM_LOW_MEMORY);
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {}
+    };
 
     public RCanvas(ThemedReactContext context) {
         super(context);
         mIntersectionHelper = new IntersectionHelper(this);
+        mSampleBuffer = new SampleRingBuffer(this);
         mStateStack = new Stack<>();
         mStateStack.push(new RCanvasState());
         allocNext();
+        context.getApplicationContext().registerComponentCallbacks(mMemoryCallbacks);
+    }
+
+    /**
+     * @param scale must be positive and finite, the viewport matrix must stay invertible
+     */
+    public void setViewportScale(float scale) {
+        if (!(scale > 0) || Float.isInfinite(scale)) {
+            throw new JSApplicationIllegalArgumentException(String.format(Locale.ENGLISH, "%s: bad viewport scale %s", TAG, scale));
+        }
+        mViewportScale = scale;
+        updateViewport();
+    }
+
+    /**
+     * @param x px
+     */
+    public void setViewportTranslateX(float x) {
+        mViewportTranslateX = requireFinite(x, "viewport translateX");
+        updateViewport();
+    }
+
+    /**
+     * @param y px
+     */
+    public void setViewportTranslateY(float y) {
+        mViewportTranslateY = requireFinite(y, "viewport translateY");
+        updateViewport();
+    }
+
+    private static float requireFinite(float value, String name) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            throw new JSApplicationIllegalArgumentException(String.format(Locale.ENGLISH, "%s: bad %s %s", TAG, name, value));
+        }
+        return value;
+    }
+
+    private void updateViewport() {
+        mViewport.setScale(mViewportScale, mViewportScale);
+        mViewport.postTranslate(mViewportTranslateX, mViewportTranslateY);
+        mViewport.invert(mInverseViewport);
+        updateVisibleRect();
+        mCommittedLayer.invalidate();
+        for (RPath path: mPaths) {
+            path.setViewportScale(mViewportScale);
+        }
+        invalidateSnapshot();
+        postInvalidateOnAnimation();
+    }
+
+    private void updateVisibleRect() {
+        mVisibleRect.set(0, 0, getWidth(), getHeight());
+        mInverseViewport.mapRect(mVisibleRect);
+    }
+
+    Matrix getViewport() {
+        return mViewport;
+    }
+
+    Matrix getInverseViewport() {
+        return mInverseViewport;
+    }
+
+    RectF getVisibleRect() {
+        return mVisibleRect;
+    }
+
+    /**
+     * @param autoLayer caches committed paths in a {@link CommittedLayer} while paths are being drawn
+     */
+    public void setAutoLayer(boolean autoLayer) {
+        mAutoLayer = autoLayer;
+        if (!autoLayer) {
+            mCommittedLayer.release();
+        }
+        postInvalidateOnAnimation();
+    }
+
+    CommittedLayer getCommittedLayer() {
+        return mCommittedLayer;
+    }
+
+    private boolean isCommittedLayerActive() {
+        return mAutoLayer && mInteractionContainer.size() > 0;
+    }
+
+    /**
+     * @return paths that are not being drawn
+     */
+    ArrayList<RPath> getCommittedPaths() {
+        return filterPaths(paths(), false);
+    }
+
+    boolean isCommitted(RPath path) {
+        // unallocated and debug paths have no id
+        return path.getPathId() != 0 && mInteractionContainer.indexOf(path.getPathId()) == -1;
+    }
+
+    /**
+     * invoked by paths whenever they change
+     */
+    void onPathChanged(RPath path) {
+        if (isCommitted(path)) {
+            mCommittedLayer.invalidate();
+        }
+        if (path.getPathId() != 0) {
+            mSpatialIndex.update(path);
+        }
+        invalidateSnapshot();
+    }
+
+    /**
+     * indexes paths by their stroke bounds, in document space
+     */
+    SpatialIndex getSpatialIndex() {
+        return mSpatialIndex;
+    }
+
+    /**
+     * @param offHeapPoints compacts committed points into {@link #getPointArena()}, outside of the java heap,
+     *                      applies to paths committed from now on
+     */
+    public void setOffHeapPoints(boolean offHeapPoints) {
+        mOffHeapPoints = offHeapPoints;
+    }
+
+    PointArena getPointArena() {
+        return mPointArena;
+    }
+
+    /**
+     * compacts a path's points once it is committed, see {@link RPathState#compact}
+     */
+    void compact(RPath path) {
+        path.getState().compact(mOffHeapPoints ? mPointArena : null);
+    }
+
+    /**
+     * releases state that is rebuilt lazily, more of it as `level` rises:
+     * the committed layer's bitmap, then levels of detail and cached snapshots, then cached paths of off screen strokes and expanded points.
+     * Snapshots held by queries in flight or open cursors are released once those are done.
+     * Invoked on the UI thread by the system
+     * @param level a {@link ComponentCallbacks2} trim level or {@link CanvasMetrics#TRIM_LOW_MEMORY}
+     */
+    void trimMemory(int level) {
+        mMetrics.onTrimMemory(level);
+        mCommittedLayer.release();
+        if (level < ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) return;
+        mSnapshot = null;
+        boolean critical = level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL;
+        // nothing is drawn once the app is in the background
+        boolean hidden = level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND;
+        PointArena arena = mOffHeapPoints ? mPointArena : null;
+        for (RPath path: mPaths) {
+            boolean committed = isCommitted(path);
+            path.trim(critical && committed && (hidden || !path.intersects(mVisibleRect)));
+            if (critical) {
+                path.compactStates(arena, committed);
+            }
+        }
+    }
+
+    VersionLog getVersionLog() {
+        return mVersionLog;
+    }
+
+    CanvasMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    DebugOverlay getDebugOverlay() {
+        return mDebugOverlay;
+    }
+
+    /**
+     * commands and events waiting on the canvas, shown by {@link DebugOverlay}
+     */
+    int getPendingEventCount() {
+        return 0;
+    }
+
+    /**
+     * records commands, save and restore until {@link #stopTrace}, replacing a trace in progress
+     */
+    void startTrace(TraceRecorder recorder) {
+        mTraceRecorder = recorder;
+    }
+
+    @Nullable
+    TraceRecorder stopTrace() {
+        TraceRecorder recorder = mTraceRecorder;
+        mTraceRecorder = null;
+        return recorder;
+    }
+
+    @Nullable
+    TraceRecorder getTraceRecorder() {
+        return mTraceRecorder;
+    }
+
+    /**
+     * a {@link TraceReplay} is in progress, tracing is refused meanwhile so replayed commands aren't recorded
+     */
+    boolean isReplaying() {
+        return mReplaying;
+    }
+
+    void setReplaying(boolean replaying) {
+        mReplaying = replaying;
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        long start = CanvasMetrics.now();
+        if (isCommittedLayerActive()) {
+            mCommittedLayer.draw(canvas);
+        }
+        super.dispatchDraw(canvas);
+        mMetrics.drawTime.record(CanvasMetrics.since(start));
+        if (BuildConfig.DEBUG && mDebugOverlay.isEnabled()) {
+            mDebugOverlay.draw(canvas);
+        }
+    }
+
+    /**
+     * maps a point in view space, e.g. a touch, into document space
+     */
+    public PointF toDocumentPoint(PointF point) {
+        if (mInverseViewport.isIdentity()) return point;
+        float[] out = { point.x, point.y };
+        mInverseViewport.mapPoints(out);
+        return new PointF(out[0], out[1]);
+    }
+
+    /**
+     * culls paths outside the visible rect and applies the viewport to the rest
+     */
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        if (child instanceof RPath && !((RPath) child).intersects(mVisibleRect)) {
+            return false;
+        }
+        if (child instanceof RPath && isCommittedLayerActive() && isCommitted((RPath) child)) {
+            // drawn by the committed layer
+            return false;
+        }
+        if (mViewport.isIdentity()) {
+            return super.drawChild(canvas, child, drawingTime);
+        }
+        int saveCount = canvas.save();
+        canvas.clipRect(0, 0, getWidth(), getHeight());
+        canvas.concat(mViewport);
+        boolean more = super.drawChild(canvas, child, drawingTime);
+        canvas.restoreToCount(saveCount);
+        return more;
+    }
+
+    /**
+     * maps dirty rects of paths, which are in document space, into view space
+     */
+    @Override
+    public ViewParent invalidateChildInParent(int[] location, Rect dirty) {
+        if (!mViewport.isIdentity()) {
+            RectF rect = new RectF(dirty);
+            mViewport.mapRect(rect);
+            rect.roundOut(dirty);
+        }
+        return super.invalidateChildInParent(location, dirty);
+    }
+
+    @Override
+    public void setId(int id) {
+        if (getId() != NO_ID) {
+            SampleRingBuffer.unregister(getId());
+        }
+        super.setId(id);
+        SampleRingBuffer.register(id, mSampleBuffer);
+    }
+
+    /**
+     * accepts stroke samples from any thread, see {@link SampleRingBuffer}
+     */
+    SampleRingBuffer getSampleBuffer() {
+        return mSampleBuffer;
     }
 
     public IntersectionHelper getIntersectionHelper(){
@@ -42,7 +387,7 @@ public class RCanvas extends ReactViewGroup {
     }
 
     public void setDrawDebug(boolean drawDebug) {
-        mIntersectionHelper.setDebug(drawDebug);
+        mDebugOverlay.setEnabled(drawDebug);
     }
 
     public void setStrokeColor(int color) {
@@ -56,6 +401,9 @@ public class RCanvas extends ReactViewGroup {
     }
 
     public int save() {
+        if (mTraceRecorder != null) {
+            mTraceRecorder.onSave();
+        }
         mStateStack.push(mStateStack.peek());
         for (RPath path: paths()) {
             path.save();
@@ -64,6 +412,9 @@ public class RCanvas extends ReactViewGroup {
     }
 
     public ArrayList<RPath> restore(int saveCount) {
+        if (mTraceRecorder != null) {
+            mTraceRecorder.onRestore(saveCount);
+        }
         if (saveCount == -1) {
             saveCount = Math.max(mStateStack.size() - 1, 0);
         } else if (saveCount >= mStateStack.size() || saveCount < 0) {
@@ -101,24 +452,57 @@ public class RCanvas extends ReactViewGroup {
     }
 
     public RPath getPath(int id) {
-        for (RPath path: paths()) {
-            if (path.getPathId() == id) {
-                return path;
-            }
+        RPath path = mPathsById.get(id);
+        if (path != null) {
+            return path;
         }
 
         throw new JSApplicationIllegalArgumentException(String.format(Locale.ENGLISH, "%s failed to find path#%d", TAG, id));
     }
 
+    public boolean hasPath(int pathId) {
+        return mPathsById.get(pathId) != null;
+    }
+
     public int getPathIndex(int pathId) {
-        ArrayList<RPath> paths = paths();
-        for (int i = 0; i < paths.size(); i++) {
-            RPath path = paths.get(i);
-            if (path.getPathId() == pathId) {
-                return i;
+        RPath path = mPathsById.get(pathId);
+        return path != null ? mPathIndices.get(pathId, -1) : -1;
+    }
+
+    protected void registerPath(RPath path) {
+        mPaths.add(path);
+        mPathsById.put(path.getPathId(), path);
+        mPathIndices.put(path.getPathId(), mPaths.size() - 1);
+        path.onRegistered(mVersionLog.onAdded(path.getPathId()));
+    }
+
+    /**
+     * removes `paths` in a single pass, {@link ArrayList#removeAll} is O(n * m) for list arguments
+     */
+    protected void unregisterPaths(Collection<RPath> paths) {
+        HashSet<RPath> set = new HashSet<>(paths);
+        int from = mPaths.size();
+        for (RPath path: set) {
+            if (mPathsById.get(path.getPathId()) == path) {
+                from = Math.min(from, mPathIndices.get(path.getPathId()));
+                mPathsById.remove(path.getPathId());
+                mPathIndices.delete(path.getPathId());
+                mVersionLog.onRemoved(path.getPathId());
+            } else {
+                from = 0;
             }
         }
-        return -1;
+        mPaths.removeAll(set);
+        reindexPaths(from);
+    }
+
+    /**
+     * updates {@link #mPathIndices} of the paths at and above `from`
+     */
+    private void reindexPaths(int from) {
+        for (int i = from; i < mPaths.size(); i++) {
+            mPathIndices.put(mPaths.get(i).getPathId(), i);
+        }
     }
 
     private void allocNext() {
@@ -146,23 +530,42 @@ public class RCanvas extends ReactViewGroup {
     }
 
     protected RPath init(int pathId) {
-        if (getPathIndex(pathId) == -1) {
+        if (!hasPath(pathId)) {
             RPath path = mNextPath;
             path.setPathId(pathId);
             path.setHitSlop(mHitSlop);
             path.setResizeMode(mResizeMode);
-            mPaths.add(path);
+            path.setViewportScale(mViewportScale);
+            registerPath(path);
             allocNext();
+            invalidateSnapshot();
             return path;
         } else {
             throw new JSApplicationIllegalArgumentException(String.format(Locale.ENGLISH, "%s: path#%s already exists", TAG, pathId));
         }
     }
 
+    /**
+     * allocates a path drawn right above `below`, with the same style
+     */
+    RPath insertPath(int pathId, RPath below) {
+        RPath path = init(pathId);
+        int index = getPathIndex(below.getPathId()) + 1;
+        mPaths.remove(mPaths.size() - 1);
+        mPaths.add(index, path);
+        reindexPaths(index);
+        removeView(path);
+        addView(path, indexOfChild(below) + 1, new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
+        path.setStrokeColor(below.getStrokeColor());
+        path.setStrokeWidth(below.getStrokeWidth());
+        return path;
+    }
+
     public void drawPoint(int pathId, PointF point) {
         UiThreadUtil.assertOnUiThread();
         ensureInteraction(pathId);
-        getPath(pathId).addPoint(point);
+        getPath(pathId).addPoint(toDocumentPoint(point));
+        mMetrics.onPointsIngested(1);
         postInvalidateOnAnimation();
     }
 
@@ -173,7 +576,25 @@ public class RCanvas extends ReactViewGroup {
     }
 
     public void endInteraction(int pathId) {
-        mInteractionContainer.remove((Integer) pathId);
+        if (!mInteractionContainer.remove((Integer) pathId)) return;
+        int index = getPathIndex(pathId);
+        if (index == -1 || isDiscardedOnEnd(mPaths.get(index))) return;
+        // the path is cached, its points are only read from now on
+        compact(mPaths.get(index));
+        if (mInteractionContainer.size() == 0 && index == mPaths.size() - 1) {
+            // topmost, so it can be drawn over the committed paths
+            mCommittedLayer.commit(mPaths.get(index));
+        } else {
+            mCommittedLayer.invalidate();
+        }
+        postInvalidateOnAnimation();
+    }
+
+    /**
+     * paths removed right after their interaction ends are neither compacted nor committed
+     */
+    protected boolean isDiscardedOnEnd(RPath path) {
+        return false;
     }
 
     public void clear() {
@@ -182,10 +603,49 @@ public class RCanvas extends ReactViewGroup {
     }
 
     protected void removePaths(final ArrayList<RPath> paths) {
-        mPaths.removeAll(paths);
+        unregisterPaths(paths);
         for (RPath path: paths) {
-            removeView(path);
+            mSpatialIndex.remove(path);
+            path.release();
+        }
+        removePathViews(paths);
+        mCommittedLayer.invalidate();
+        invalidateSnapshot();
+    }
+
+    /**
+     * removes the views of `paths` in O(n) however they are spread:
+     * the children from the lowest removed one up are detached at once, the removed ones are dropped and the rest reattached in order.
+     * Bypasses ReactViewGroup's z-index bookkeeping, paths aren't z-indexed
+     * @return the removed views, bottom to top
+     */
+    protected ArrayList<View> removePathViews(Collection<RPath> paths) {
+        HashSet<RPath> pathsToRemove = new HashSet<>(paths);
+        ArrayList<View> removed = new ArrayList<>(pathsToRemove.size());
+        int count = getChildCount();
+        int first = 0;
+        while (first < count && !pathsToRemove.contains(getChildAt(first))) {
+            first++;
         }
+        if (first == count) return removed;
+
+        View[] children = new View[count - first];
+        for (int i = first; i < count; i++) {
+            children[i - first] = getChildAt(i);
+        }
+        detachViewsFromParent(first, children.length);
+        for (View child: children) {
+            if (pathsToRemove.contains(child)) {
+                removeDetachedView(child, false);
+                removed.add(child);
+            } else {
+                attachViewToParent(child, -1, child.getLayoutParams());
+            }
+        }
+        // as removeView does
+        requestLayout();
+        invalidate();
+        return removed;
     }
 
     protected ArrayList<RPath> filterPaths(final ArrayList<RPath> paths, final boolean pathInteractionInProgress) {
@@ -198,8 +658,48 @@ public class RCanvas extends ReactViewGroup {
         return filteredList;
     }
 
-    public void tearDown(){
+    void invalidateSnapshot() {
+        mSnapshot = null;
+    }
 
+    /**
+     * @return the cached snapshot, without taking one
+     */
+    @Nullable
+    SceneSnapshot peekSnapshot() {
+        return mSnapshot;
+    }
+
+    /**
+     * the {@link SceneSnapshot} read by background queries, cached until the scene changes
+     */
+    SceneSnapshot obtainSnapshot() {
+        if (mSnapshot == null) {
+            ArrayList<RPath> paths = paths();
+            SceneSnapshot.StrokeSnapshot[] strokes = new SceneSnapshot.StrokeSnapshot[paths.size()];
+            for (int i = 0; i < strokes.length; i++) {
+                strokes[i] = paths.get(i).getSnapshot();
+            }
+            mSnapshot = new SceneSnapshot(strokes, getWidth(), getHeight(), mInverseViewport, mMetrics,
+                    mVersionLog.getVersion(), mVersionLog.getTombstones());
+        }
+        return mSnapshot;
+    }
+
+    public void tearDown(){
+        getContext().getApplicationContext().unregisterComponentCallbacks(mMemoryCallbacks);
+        mSampleBuffer.release();
+        SampleRingBuffer.unregister(getId());
+        mSnapshot = null;
+        mCommittedLayer.release();
+        TraceRecorder recorder = stopTrace();
+        if (recorder != null) {
+            recorder.stop(null);
+        }
+        for (RPath path: mPaths) {
+            path.release();
+        }
+        mPointArena.release();
     }
 
     @Override
@@ -209,5 +709,8 @@ public class RCanvas extends ReactViewGroup {
             path.onSizeChanged(w, h, oldw, oldh);
         }
         mNextPath.onSizeChanged(w, h, oldw, oldh);
+        updateVisibleRect();
+        mCommittedLayer.invalidate();
+        invalidateSnapshot();
     }
 }
@@ -16,11 +16,28 @@ import java.util.Map;
 public class RCanvasEventDispatcher {
     @interface JSEventNames {
         String ON_CHANGE = "onChange";
+        String ON_UPDATE_COMPLETE = "onUpdateComplete";
+        String ON_IMPORT_PROGRESS = "onImportProgress";
+        String ON_METRICS = "onMetrics";
+        String ON_ERROR = "onCanvasError";
+    }
+
+    /**
+     * the `source` of `onCanvasError` events
+     */
+    @interface ErrorSource {
+        String UPDATE = "update";
+        String PATH = "path";
+        String SAMPLE = "sample";
     }
 
     public static Map<String, Object> getExportedCustomDirectEventTypeConstants() {
         return MapBuilder.<String, Object>builder()
                 .put(JSEventNames.ON_CHANGE, MapBuilder.of("registrationName", JSEventNames.ON_CHANGE))
+                .put(JSEventNames.ON_UPDATE_COMPLETE, MapBuilder.of("registrationName", JSEventNames.ON_UPDATE_COMPLETE))
+                .put(JSEventNames.ON_IMPORT_PROGRESS, MapBuilder.of("registrationName", JSEventNames.ON_IMPORT_PROGRESS))
+                .put(JSEventNames.ON_METRICS, MapBuilder.of("registrationName", JSEventNames.ON_METRICS))
+                .put(JSEventNames.ON_ERROR, MapBuilder.of("registrationName", JSEventNames.ON_ERROR))
                 .build();
     }
 
@@ -41,6 +58,8 @@ public class RCanvasEventDispatcher {
             @Nullable ArrayList<RPath> changed,
             @Nullable ArrayList<RPath> removed
     ) {
+        long start = CanvasMetrics.now();
+        int pointCount = 0;
         WritableNativeMap event = new WritableNativeMap();
         WritableNativeArray changedPaths = new WritableNativeArray();
         WritableNativeArray addedArray = new WritableNativeArray();
@@ -51,6 +70,7 @@ public class RCanvasEventDispatcher {
             for (RPath path: changed) {
                 changedPaths.pushMap(path.toWritableMap(true));
                 changedArray.pushInt(path.getPathId());
+                pointCount += path.getState().size();
             }
         }
 
@@ -58,6 +78,7 @@ public class RCanvasEventDispatcher {
             for (RPath path: added) {
                 changedPaths.pushMap(path.toWritableMap(true));
                 addedArray.pushInt(path.getPathId());
+                pointCount += path.getState().size();
             }
         }
 
@@ -73,6 +94,7 @@ public class RCanvasEventDispatcher {
         event.putArray("added", addedArray);
         event.putArray("changed", changedArray);
         event.putArray("removed", removedArray);
+        mCanvas.getMetrics().onChangeEmitted(start, pointCount);
 
         emit(JSEventNames.ON_CHANGE, event);
 
@@ -81,4 +103,54 @@ public class RCanvasEventDispatcher {
         }
     }
 
+    /**
+     * @param buildTime ms spent building paths off the UI thread
+     */
+    void emitUpdateComplete(int pathCount, int pointCount, long buildTime) {
+        WritableNativeMap event = new WritableNativeMap();
+        event.putInt("paths", pathCount);
+        event.putInt("points", pointCount);
+        event.putDouble("buildTime", buildTime);
+        emit(JSEventNames.ON_UPDATE_COMPLETE, event);
+    }
+
+    /**
+     * @param duration ms since the import started
+     * @param error set if the import failed, the import is then done
+     */
+    void emitImportProgress(int importId, int pathCount, int pointCount, long duration, boolean done, @Nullable Throwable error) {
+        double seconds = Math.max(duration, 1) / 1000.0;
+        WritableNativeMap event = new WritableNativeMap();
+        event.putInt("importId", importId);
+        event.putInt("paths", pathCount);
+        event.putInt("points", pointCount);
+        event.putDouble("duration", duration);
+        event.putDouble("pathsPerSecond", pathCount / seconds);
+        event.putDouble("pointsPerSecond", pointCount / seconds);
+        event.putBoolean("done", done);
+        if (error != null) {
+            event.putString("error", String.valueOf(error.getMessage() != null ? error.getMessage() : error));
+        }
+        emit(JSEventNames.ON_IMPORT_PROGRESS, event);
+    }
+
+    void emitMetrics(WritableMap metrics) {
+        emit(JSEventNames.ON_METRICS, metrics);
+    }
+
+    /**
+     * reports a failure of work that has no callback to reject, e.g. a background update
+     * @param source what failed, e.g. `update`
+     * @param pathId pass 0 if the failure isn't bound to a path
+     */
+    void emitError(@ErrorSource String source, int pathId, Throwable e) {
+        WritableNativeMap event = new WritableNativeMap();
+        event.putString("source", source);
+        if (pathId != 0) {
+            event.putInt("pathId", pathId);
+        }
+        event.putString("message", String.valueOf(e.getMessage() != null ? e.getMessage() : e));
+        emit(JSEventNames.ON_ERROR, event);
+    }
+
 }
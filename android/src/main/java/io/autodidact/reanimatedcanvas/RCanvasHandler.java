@@ -1,8 +1,12 @@
 package io.autodidact.reanimatedcanvas;
 
-import android.util.SparseIntArray;
+import android.graphics.Path;
+import android.graphics.PointF;
+import android.graphics.RectF;
+import android.view.View;
 
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import com.facebook.react.bridge.JSApplicationIllegalArgumentException;
 import com.facebook.react.bridge.ReactContext;
@@ -15,23 +19,345 @@ import com.facebook.react.uimanager.UIImplementation;
 import com.facebook.react.uimanager.UIManagerModule;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
 
 import io.autodidact.reanimatedcanvas.RPath.ResizeMode;
 
 public class RCanvasHandler extends RCanvas {
 
-    private final ArrayList<Integer> reactTagRegistry = new ArrayList<>();
+    private final HashSet<Integer> reactTagRegistry = new HashSet<>();
     private final RCanvasEventDispatcher mEventDispatcher;
     private final ArrayList<RPath> added = new ArrayList<>();
     private final ArrayList<RPath> removed = new ArrayList<>();
+    private final ArrayList<Runnable> mDeferredCommands = new ArrayList<>();
+    private int mPendingUpdates = 0;
+    private @Eraser.Mode String mEraserMode = Eraser.Mode.PIXEL;
+    private final LinkedHashSet<RPath> mErased = new LinkedHashSet<>();
+    private final LinkedHashSet<RPath> mErasedAdded = new LinkedHashSet<>();
+    private final LinkedHashSet<RPath> mErasedChanged = new LinkedHashSet<>();
+    private boolean mEraseScheduled = false;
+    private final Runnable mFlushErased = new Runnable() {
+        @Override
+        public void run() {
+            mEraseScheduled = false;
+            flushErased();
+        }
+    };
+    private final OperationLog mOperationLog = new OperationLog();
+    private final LinkedHashSet<RPath> mOpsAdded = new LinkedHashSet<>();
+    private final LinkedHashSet<RPath> mOpsChanged = new LinkedHashSet<>();
+    private final LinkedHashSet<RPath> mOpsRemoved = new LinkedHashSet<>();
+    private boolean mOpsScheduled = false;
+    private final Runnable mFlushOps = new Runnable() {
+        @Override
+        public void run() {
+            mOpsScheduled = false;
+            flushOps();
+        }
+    };
+    private int mMetricsInterval = 0;
+    private final Runnable mEmitMetrics = new Runnable() {
+        @Override
+        public void run() {
+            mEventDispatcher.emitMetrics(getMetrics().toWritableMap(RCanvasHandler.this));
+            postDelayed(this, mMetricsInterval);
+        }
+    };
 
     public RCanvasHandler(ThemedReactContext context) {
         super(context);
         mEventDispatcher = new RCanvasEventDispatcher(context, this);
     }
 
+    @VisibleForTesting
+    RCanvasHandler(ThemedReactContext context, RCanvasEventDispatcher eventDispatcher) {
+        super(context);
+        mEventDispatcher = eventDispatcher;
+    }
+
+    public void setEraserMode(@Eraser.Mode String eraserMode) {
+        mEraserMode = eraserMode;
+    }
+
+    /**
+     * @param interval ms between `onMetrics` events, 0 disables them
+     */
+    public void setMetricsInterval(int interval) {
+        mMetricsInterval = interval;
+        removeCallbacks(mEmitMetrics);
+        if (interval > 0) {
+            postDelayed(mEmitMetrics, interval);
+        }
+    }
+
+    private boolean erasesGeometry(RPath path) {
+        return !Eraser.Mode.PIXEL.equals(mEraserMode) && path.getStyle().isEraser();
+    }
+
+    /**
+     * erasers that don't erase pixels are removed once they end, see {@link #endInteraction}
+     */
+    @Override
+    protected boolean isDiscardedOnEnd(RPath path) {
+        return erasesGeometry(path);
+    }
+
+    @Override
+    public void drawPoint(int pathId, PointF point) {
+        super.drawPoint(pathId, point);
+        RPath path = getPath(pathId);
+        if (erasesGeometry(path)) {
+            erase(path);
+        }
+    }
+
+    /**
+     * queries the paths touched by the last eraser sample, then either schedules their removal or cuts them,
+     * depending on {@link Eraser.Mode}
+     */
+    private void erase(RPath eraser) {
+        ArrayList<PointF> points = eraser.getState().getPoints();
+        PointF b = points.get(points.size() - 1);
+        PointF a = points.size() > 1 ? points.get(points.size() - 2) : b;
+        float radius = eraser.getStrokeWidth() / 2;
+        RectF sampleBounds = Eraser.getSampleBounds(a, b, radius);
+        for (RPath path: getSpatialIndex().query(sampleBounds)) {
+            if (path == eraser || !isCommitted(path) || path.getStyle().isEraser() || mErased.contains(path)) {
+                continue;
+            }
+            if (!RectF.intersects(path.getStrokeBounds(), sampleBounds)) {
+                continue;
+            }
+            float threshold = radius + path.getStrokeWidth() / 2;
+            if (Eraser.Mode.VECTOR.equals(mEraserMode)) {
+                cut(path, a, b, threshold);
+            } else if (Eraser.touches(path.getState().readPoints(), a, b, threshold)) {
+                scheduleRemoval(path);
+            }
+        }
+    }
+
+    /**
+     * the first piece stays in `path`, the rest are inserted right above it
+     */
+    private void cut(RPath path, PointF a, PointF b, float threshold) {
+        ArrayList<ArrayList<PointF>> pieces = Eraser.split(path.getState().readPoints(), a, b, threshold);
+        if (pieces == null) return;
+        if (pieces.size() == 0) {
+            scheduleRemoval(path);
+            return;
+        }
+        path.setPoints(pieces.get(0));
+        if (!mErasedAdded.contains(path)) {
+            mErasedChanged.add(path);
+        }
+        RPath piece;
+        for (int i = pieces.size() - 1; i > 0; i--) {
+            piece = insertPath(Utility.generateId(), path);
+            piece.setPoints(pieces.get(i));
+            mErasedAdded.add(piece);
+        }
+        scheduleFlush();
+    }
+
+    private void scheduleRemoval(RPath path) {
+        mErased.add(path);
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (!mEraseScheduled) {
+            mEraseScheduled = true;
+            postOnAnimation(mFlushErased);
+        }
+    }
+
+    /**
+     * removes erased paths once per frame with a single change event, along with the pieces cut since the last frame,
+     * then compacts the pieces
+     */
+    private void flushErased() {
+        ArrayList<RPath> removedPaths = new ArrayList<>();
+        for (RPath path: mErased) {
+            if (hasPath(path.getPathId()) && getPath(path.getPathId()) == path) {
+                removedPaths.add(path);
+            }
+        }
+        ArrayList<RPath> addedPaths = new ArrayList<>(mErasedAdded);
+        ArrayList<RPath> changedPaths = new ArrayList<>(mErasedChanged);
+        addedPaths.removeAll(mErased);
+        changedPaths.removeAll(mErased);
+        mErased.clear();
+        mErasedAdded.clear();
+        mErasedChanged.clear();
+        if (removedPaths.size() > 0) {
+            removePaths(removedPaths);
+        }
+        // cut pieces are read only from now on, like paths whose interaction ended
+        for (RPath path: addedPaths) {
+            if (isCommitted(path)) compact(path);
+        }
+        for (RPath path: changedPaths) {
+            if (isCommitted(path)) compact(path);
+        }
+        if (addedPaths.size() > 0 || changedPaths.size() > 0 || removedPaths.size() > 0) {
+            mEventDispatcher.emitChange(
+                    addedPaths.size() > 0 ? addedPaths : null,
+                    changedPaths.size() > 0 ? changedPaths : null,
+                    removedPaths.size() > 0 ? removedPaths : null
+            );
+        }
+    }
+
+    /**
+     * applies an operation log, see {@link OperationLog}.
+     * Ops are applied right away, removals in a single pass,
+     * their change events are coalesced into a single event per frame along with other logs applied in that frame.
+     * A malformed op throws and aborts the rest of the log, the ops before it stand and its sequence number isn't committed
+     * @param origin the source of the log, sequence numbers are deduped per origin
+     */
+    public void applyOps(@Nullable String origin, ReadableArray ops) {
+        ArrayList<RPath> pathsToRemove = new ArrayList<>();
+        HashSet<Integer> removedIds = new HashSet<>();
+        ReadableArray op;
+        RPath path;
+        int pathId;
+
+        try {
+            for (int i = 0; i < ops.size(); i++) {
+                op = ops.getArray(i);
+                if (mOperationLog.isApplied(origin, op)) continue;
+                pathId = op.getInt(OperationLog.PATH_ID);
+                if (removedIds.contains(pathId)) {
+                    // the id is reused within the log
+                    removeOpsPaths(pathsToRemove);
+                    pathsToRemove.clear();
+                    removedIds.clear();
+                }
+                // arguments are parsed before the canvas is mutated, so a malformed op leaves no trace
+                switch (OperationLog.getType(op)) {
+                    case OperationLog.Op.ADD: {
+                        int strokeColor = op.getInt(3);
+                        float strokeWidth = PixelUtil.toPixelFromDIP(op.getDouble(4));
+                        ArrayList<PointF> points = OperationLog.parsePoints(op.getArray(5));
+                        boolean exists = hasPath(pathId);
+                        path = exists ? getPath(pathId) : init(pathId);
+                        path.setStrokeColor(strokeColor);
+                        path.setStrokeWidth(strokeWidth);
+                        path.setPoints(points);
+                        getMetrics().onPointsIngested(points.size());
+                        if (exists) {
+                            onOpChanged(path);
+                        } else {
+                            mOpsAdded.add(path);
+                        }
+                        break;
+                    }
+                    case OperationLog.Op.APPEND: {
+                        ArrayList<PointF> points = OperationLog.parsePoints(op.getArray(3));
+                        if (!hasPath(pathId)) break;
+                        path = getPath(pathId);
+                        path.addPoints(points);
+                        getMetrics().onPointsIngested(points.size());
+                        onOpChanged(path);
+                        break;
+                    }
+                    case OperationLog.Op.SET: {
+                        ReadableMap attributes = op.getMap(3);
+                        if (!hasPath(pathId)) break;
+                        setAttributes(pathId, attributes, null, false);
+                        onOpChanged(getPath(pathId));
+                        break;
+                    }
+                    case OperationLog.Op.REMOVE: {
+                        if (!hasPath(pathId)) break;
+                        pathsToRemove.add(getPath(pathId));
+                        removedIds.add(pathId);
+                        break;
+                    }
+                }
+                mOperationLog.commit(origin, op);
+            }
+        } finally {
+            // ops applied before a failing one stand
+            removeOpsPaths(pathsToRemove);
+            postInvalidateOnAnimation();
+            if (!mOpsScheduled && (mOpsAdded.size() > 0 || mOpsChanged.size() > 0 || mOpsRemoved.size() > 0)) {
+                mOpsScheduled = true;
+                postOnAnimation(mFlushOps);
+            }
+        }
+    }
+
+    private void onOpChanged(RPath path) {
+        if (!mOpsAdded.contains(path)) {
+            mOpsChanged.add(path);
+        }
+    }
+
+    private void removeOpsPaths(ArrayList<RPath> paths) {
+        if (paths.size() == 0) return;
+        removePaths(paths);
+        for (RPath path: paths) {
+            mOpsChanged.remove(path);
+            // js never learned of paths added and removed within the same frame
+            if (!mOpsAdded.remove(path)) {
+                mOpsRemoved.add(path);
+            }
+        }
+    }
+
+    /**
+     * emits the changes of the logs applied since the last frame, then compacts the committed paths they touched
+     */
+    private void flushOps() {
+        ArrayList<RPath> addedPaths = filterRegistered(mOpsAdded);
+        ArrayList<RPath> changedPaths = filterRegistered(mOpsChanged);
+        ArrayList<RPath> removedPaths = new ArrayList<>(mOpsRemoved);
+        mOpsAdded.clear();
+        mOpsChanged.clear();
+        mOpsRemoved.clear();
+        if (addedPaths.size() > 0 || changedPaths.size() > 0 || removedPaths.size() > 0) {
+            mEventDispatcher.emitChange(
+                    addedPaths.size() > 0 ? addedPaths : null,
+                    changedPaths.size() > 0 ? changedPaths : null,
+                    removedPaths.size() > 0 ? removedPaths : null
+            );
+        }
+        for (RPath path: addedPaths) {
+            if (isCommitted(path)) compact(path);
+        }
+        for (RPath path: changedPaths) {
+            if (isCommitted(path)) compact(path);
+        }
+    }
+
+    /**
+     * drops paths removed since they were collected, e.g. by `clear`
+     */
+    private ArrayList<RPath> filterRegistered(Collection<RPath> paths) {
+        ArrayList<RPath> out = new ArrayList<>();
+        for (RPath path: paths) {
+            if (hasPath(path.getPathId()) && getPath(path.getPathId()) == path) {
+                out.add(path);
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public void tearDown() {
+        super.tearDown();
+        removeCallbacks(mFlushOps);
+        removeCallbacks(mFlushErased);
+        removeCallbacks(mEmitMetrics);
+    }
+
     @Override
     public ArrayList<RPath> restore(int saveCount) {
         ArrayList<RPath> changed = super.restore(saveCount);
@@ -51,8 +377,14 @@ public class RCanvasHandler extends RCanvas {
     @Override
     public void endInteraction(int pathId) {
         super.endInteraction(pathId);
+        RPath path = getPath(pathId);
+        if (erasesGeometry(path)) {
+            // the eraser has done its work, remove it along with the paths it erased
+            scheduleRemoval(path);
+            return;
+        }
         ArrayList<RPath> changed = new ArrayList<>();
-        changed.add(getPath(pathId));
+        changed.add(path);
         mEventDispatcher.emitChange(null ,changed, null);
     }
 
@@ -65,10 +397,117 @@ public class RCanvasHandler extends RCanvas {
 
     public void handleUpdate(@Nullable ReadableArray pathsUpdate) {
         if (pathsUpdate == null) return;
+        if (PathBuilder.shouldBuildInBackground(pathsUpdate)) {
+            handleUpdateInBackground(pathsUpdate);
+        } else {
+            applyUpdate(pathsUpdate, null);
+        }
+    }
+
+    /**
+     * decodes points and builds paths on {@link PathBuilder}'s worker pool,
+     * the update is then applied as a whole on the next frame.
+     * Commands received in the meantime are deferred, see {@link #isUpdatePending()}
+     */
+    private void handleUpdateInBackground(final ReadableArray pathsUpdate) {
+        beginBackgroundUpdate();
+        PathBuilder.buildAll(pathsUpdate, new PathBuilder.Callback() {
+            @Override
+            public void onComplete(final PathBuilder.Result[] results, final int pointCount, final long buildTime) {
+                postOnAnimation(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            applyUpdate(pathsUpdate, results);
+                            mEventDispatcher.emitUpdateComplete(results.length, pointCount, buildTime);
+                        } catch (Throwable e) {
+                            mEventDispatcher.emitError(RCanvasEventDispatcher.ErrorSource.UPDATE, 0, e);
+                        } finally {
+                            endBackgroundUpdate();
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void onError(final Throwable e) {
+                postOnAnimation(new Runnable() {
+                    @Override
+                    public void run() {
+                        mEventDispatcher.emitError(RCanvasEventDispatcher.ErrorSource.UPDATE, 0, e);
+                        endBackgroundUpdate();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * adds or replaces paths from decoded strokes, UI thread only
+     * @param prebuilt paths built by {@link PathBuilder#buildAll(ArrayList, PathBuilder.Callback)}, indexed as `records`
+     */
+    void applyStrokes(ArrayList<StrokeRecord> records, PathBuilder.Result[] prebuilt) {
+        ArrayList<RPath> added = new ArrayList<>();
+        ArrayList<RPath> changed = new ArrayList<>();
+
+        for (int i = 0; i < records.size(); i++) {
+            applyStroke(records.get(i), prebuilt[i].path, added, changed);
+        }
+
+        postInvalidateOnAnimation();
+        emitChange(added, changed);
+    }
+
+    /**
+     * adds or replaces a single path, UI thread only
+     * @param path prebuilt from `record.points`
+     * @param added collects the path if it was added
+     * @param changed collects the path if it replaced an existing one
+     */
+    void applyStroke(StrokeRecord record, Path path, ArrayList<RPath> added, ArrayList<RPath> changed) {
+        RPath rPath;
+        if (!hasPath(record.pathId)) {
+            rPath = init(record.pathId);
+            added.add(rPath);
+        } else {
+            rPath = getPath(record.pathId);
+            changed.add(rPath);
+        }
+        rPath.setStrokeColor(record.strokeColor);
+        rPath.setStrokeWidth(record.strokeWidth);
+        rPath.setPoints(record.points, path);
+        compact(rPath);
+        getMetrics().onPointsIngested(record.points.size());
+    }
+
+    void emitChange(ArrayList<RPath> added, ArrayList<RPath> changed) {
+        if (added.size() > 0 || changed.size() > 0) {
+            mEventDispatcher.emitChange(added, changed, null);
+        }
+    }
+
+    RCanvasEventDispatcher getEventDispatcher() {
+        return mEventDispatcher;
+    }
+
+    /**
+     * holds back commands until the matching {@link #endBackgroundUpdate()}, UI thread only
+     */
+    void beginBackgroundUpdate() {
+        mPendingUpdates++;
+    }
+
+    void endBackgroundUpdate() {
+        mPendingUpdates--;
+        runDeferredCommands();
+    }
+
+    private void applyUpdate(ReadableArray pathsUpdate, @Nullable PathBuilder.Result[] prebuilt) {
         ArrayList<RPath> added = new ArrayList<>();
         ArrayList<RPath> changed = new ArrayList<>();
         ArrayList<RPath> pathsToRemove = new ArrayList<>();
         ReadableMap entry, update;
+        PathBuilder.Result result;
         boolean exists, remove;
         int pathId;
 
@@ -76,15 +515,16 @@ public class RCanvasHandler extends RCanvas {
             entry = pathsUpdate.getMap(i);
             pathId = entry.getInt("id");
             update = entry.getMap("value");
-            exists = getPathIndex(pathId) > -1;
+            result = prebuilt != null ? prebuilt[i] : null;
+            exists = hasPath(pathId);
             remove = update == null;
 
             if (!remove && !exists) {
                 init(pathId);
-                setAttributes(pathId, update, false);
+                setAttributes(pathId, update, result, false);
                 added.add(getPath(pathId));
             } else if (!remove) {
-                setAttributes(pathId, update, false);
+                setAttributes(pathId, update, result, false);
                 changed.add(getPath(pathId));
             } else if (exists) {
                 pathsToRemove.add(getPath(pathId));
@@ -101,7 +541,37 @@ public class RCanvasHandler extends RCanvas {
         }
     }
 
+    boolean isUpdatePending() {
+        return mPendingUpdates > 0;
+    }
+
+    /**
+     * background updates in flight, commands deferred until they are applied and erased or op log paths awaiting their change event
+     */
+    @Override
+    int getPendingEventCount() {
+        return mPendingUpdates + mDeferredCommands.size() + mErased.size() + mErasedAdded.size() + mErasedChanged.size()
+                + mOpsAdded.size() + mOpsChanged.size() + mOpsRemoved.size();
+    }
+
+    /**
+     * preserves command ordering while a background update is in flight
+     */
+    void deferUntilUpdated(Runnable command) {
+        mDeferredCommands.add(command);
+    }
+
+    private void runDeferredCommands() {
+        while (!isUpdatePending() && mDeferredCommands.size() > 0) {
+            mDeferredCommands.remove(0).run();
+        }
+    }
+
     public void setAttributes(int id, ReadableMap attributes, boolean standalone) {
+        setAttributes(id, attributes, null, standalone);
+    }
+
+    private void setAttributes(int id, ReadableMap attributes, @Nullable PathBuilder.Result prebuilt, boolean standalone) {
         RPath path = getPath(id);
         if (standalone) {
             path.getState().startListening();
@@ -116,8 +586,12 @@ public class RCanvasHandler extends RCanvas {
         if (attributes.hasKey("resizeMode")) {
             path.setResizeMode(attributes.getString("resizeMode"));
         }
-        if (attributes.hasKey("points")) {
+        if (prebuilt != null) {
+            path.setPoints(prebuilt.points, prebuilt.path);
+            getMetrics().onPointsIngested(prebuilt.points.size());
+        } else if (attributes.hasKey("points")) {
             path.setPoints(Utility.processPointArray(attributes.getArray("points")));
+            getMetrics().onPointsIngested(path.getState().size());
         }
         if (attributes.hasKey("hitSlop")) {
             path.setHitSlop(Utility.parseHitSlop(attributes.getMap("hitSlop")), true);
@@ -135,7 +609,7 @@ public class RCanvasHandler extends RCanvas {
     }
 
     protected void finalizePathAddition(RPath path) {
-        if (getPathIndex(path.getPathId()) != -1) {
+        if (hasPath(path.getPathId())) {
             throw new JSApplicationIllegalArgumentException(
                 String.format(
                     "%s failed to add %s,\nid `%s` already exists",
@@ -144,15 +618,21 @@ public class RCanvasHandler extends RCanvas {
                     path.getPathId())
             );
         }
-        mPaths.add(path);
+        registerPath(path);
         path.setHitSlop(mHitSlop);
+        getSpatialIndex().update(path);
+        getCommittedLayer().invalidate();
+        invalidateSnapshot();
         added.add(path);
         reactTagRegistry.add(path.getId());
         finalizeUpdate();
     }
 
     protected void finalizePathRemoval(RPath path) {
-        mPaths.remove(path);
+        unregisterPaths(Collections.singletonList(path));
+        getSpatialIndex().remove(path);
+        getCommittedLayer().invalidate();
+        invalidateSnapshot();
         removed.add(path);
         Number tag = path.getId();
         reactTagRegistry.remove(tag);
@@ -177,20 +657,20 @@ public class RCanvasHandler extends RCanvas {
     protected final void removePaths(final ArrayList<RPath> paths) {
         final ReactContext context = (ReactContext) getContext();
         final UIImplementation uiImplementation = context.getNativeModule(UIManagerModule.class).getUIImplementation();
-        final SparseIntArray tagsToRemove = new SparseIntArray();
+        final ArrayList<Integer> tagsToRemove = new ArrayList<>();
 
-        mPaths.removeAll(paths);
-
-        for (int i = 0; i < getChildCount(); i++) {
-            for (RPath path: paths) {
-                if (getChildAt(i).getId() == path.getId()) {
-                    if (reactTagRegistry.indexOf(path.getId()) > -1) {
-                        tagsToRemove.put(i, path.getId());
-                    }
-                    removeView(path);
-                }
+        unregisterPaths(paths);
+        for (RPath path: paths) {
+            getSpatialIndex().remove(path);
+            path.release();
+        }
+        for (View child: removePathViews(paths)) {
+            if (reactTagRegistry.contains(child.getId())) {
+                tagsToRemove.add(child.getId());
             }
         }
+        getCommittedLayer().invalidate();
+        invalidateSnapshot();
 
         if (tagsToRemove.size() > 0) {
             Utility.runOnNativeModulesThread((ReactContext) getContext(), new Runnable() {
@@ -198,12 +678,15 @@ public class RCanvasHandler extends RCanvas {
                 public void run() {
                     ReactShadowNode shadowNode;
                     ReactShadowNode parentShadowNode;
-                    for (int i = 0; i < tagsToRemove.size(); i++) {
-                        shadowNode = uiImplementation.resolveShadowNode(tagsToRemove.valueAt(i));
+                    int index;
+                    for (int tag: tagsToRemove) {
+                        shadowNode = uiImplementation.resolveShadowNode(tag);
                         parentShadowNode = shadowNode.getParent();
                         if (parentShadowNode != null) {
-                            parentShadowNode.removeChildAt(tagsToRemove.keyAt(i));
-                            parentShadowNode.addChildAt(ViewManagerStub.stubShadowNode(shadowNode), tagsToRemove.keyAt(i));
+                            // view and shadow indices differ, natively added paths have no shadow node and stubbed ones no view
+                            index = parentShadowNode.indexOf(shadowNode);
+                            parentShadowNode.removeChildAt(index);
+                            parentShadowNode.addChildAt(ViewManagerStub.stubShadowNode(shadowNode), index);
                         }
                     }
                 }
@@ -9,6 +9,7 @@ import androidx.annotation.Nullable;
 import androidx.annotation.StringDef;
 
 import com.facebook.react.bridge.JSApplicationIllegalArgumentException;
+import com.facebook.react.bridge.ReactContext;
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.common.MapBuilder;
@@ -33,6 +34,13 @@ public class RCanvasManager extends ReactViewManager {
         String STROKE_WIDTH = "strokeWidth";
         String HIT_SLOP = "hitSlop";
         String DEBUG = "debug";
+        String VIEWPORT_SCALE = "viewportScale";
+        String VIEWPORT_TRANSLATE_X = "viewportTranslateX";
+        String VIEWPORT_TRANSLATE_Y = "viewportTranslateY";
+        String AUTO_LAYER = "autoLayer";
+        String ERASER_MODE = "eraserMode";
+        String METRICS_INTERVAL = "metricsInterval";
+        String OFF_HEAP_POINTS = "offHeapPoints";
     }
 
     public RCanvasManager(){
@@ -53,6 +61,10 @@ public class RCanvasManager extends ReactViewManager {
 
     @Override
     public void onDropViewInstance(@NonNull ReactViewGroup view) {
+        RCanvasModule module = ((ReactContext) view.getContext()).getNativeModule(RCanvasModule.class);
+        if (module != null) {
+            module.closePathCursors(view.getId());
+        }
         ((RCanvasHandler) view).tearDown();
     }
 
@@ -76,6 +88,7 @@ public class RCanvasManager extends ReactViewManager {
         super.removeViewAt(parent, index);
         if (child instanceof RPath) {
             ((RCanvasHandler) parent).finalizePathRemoval((RPath) child);
+            ((RPath) child).release();
         }
     }
 
@@ -110,6 +123,41 @@ public class RCanvasManager extends ReactViewManager {
         view.setDrawDebug(draw);
     }
 
+    @ReactProp(name = Props.ERASER_MODE)
+    public void setEraserMode(RCanvasHandler view, @Nullable @Eraser.Mode String eraserMode) {
+        view.setEraserMode(eraserMode != null ? eraserMode : Eraser.Mode.PIXEL);
+    }
+
+    @ReactProp(name = Props.METRICS_INTERVAL, defaultInt = 0)
+    public void setMetricsInterval(RCanvasHandler view, int interval) {
+        view.setMetricsInterval(interval);
+    }
+
+    @ReactProp(name = Props.OFF_HEAP_POINTS, defaultBoolean = false)
+    public void setOffHeapPoints(RCanvasHandler view, boolean offHeapPoints) {
+        view.setOffHeapPoints(offHeapPoints);
+    }
+
+    @ReactProp(name = Props.AUTO_LAYER, defaultBoolean = true)
+    public void setAutoLayer(RCanvasHandler view, boolean autoLayer) {
+        view.setAutoLayer(autoLayer);
+    }
+
+    @ReactProp(name = Props.VIEWPORT_SCALE, defaultFloat = 1f)
+    public void setViewportScale(RCanvasHandler view, float scale) {
+        view.setViewportScale(scale);
+    }
+
+    @ReactProp(name = Props.VIEWPORT_TRANSLATE_X, defaultFloat = 0f)
+    public void setViewportTranslateX(RCanvasHandler view, float x) {
+        view.setViewportTranslateX(PixelUtil.toPixelFromDIP(x));
+    }
+
+    @ReactProp(name = Props.VIEWPORT_TRANSLATE_Y, defaultFloat = 0f)
+    public void setViewportTranslateY(RCanvasHandler view, float y) {
+        view.setViewportTranslateY(PixelUtil.toPixelFromDIP(y));
+    }
+
     @Retention(RetentionPolicy.SOURCE)
     @IntDef({
             Commands.ALLOC,
@@ -117,7 +165,8 @@ public class RCanvasManager extends ReactViewManager {
             Commands.END_INTERACTION,
             Commands.CLEAR,
             Commands.UPDATE,
-            Commands.SET_PATH_ATTRIBUTES
+            Commands.SET_PATH_ATTRIBUTES,
+            Commands.APPLY_OPS
     })
     @interface Commands {
         int ALLOC = 1;
@@ -126,6 +175,7 @@ public class RCanvasManager extends ReactViewManager {
         int CLEAR = 4;
         int UPDATE = 5;
         int SET_PATH_ATTRIBUTES = 6;
+        int APPLY_OPS = 7;
     }
 
     @Retention(RetentionPolicy.SOURCE)
@@ -135,7 +185,8 @@ public class RCanvasManager extends ReactViewManager {
             StringCommands.COMMAND_END_INTERACTION,
             StringCommands.COMMAND_CLEAR,
             StringCommands.COMMAND_UPDATE,
-            StringCommands.COMMAND_SET_PATH_ATTRIBUTES
+            StringCommands.COMMAND_SET_PATH_ATTRIBUTES,
+            StringCommands.COMMAND_APPLY_OPS
     })
     @interface StringCommands {
         String COMMAND_ALLOC = "alloc";
@@ -144,6 +195,7 @@ public class RCanvasManager extends ReactViewManager {
         String COMMAND_CLEAR = "clear";
         String COMMAND_UPDATE = "update";
         String COMMAND_SET_PATH_ATTRIBUTES = "setAttributes";
+        String COMMAND_APPLY_OPS = "applyOps";
     }
 
     private @Commands int resolveCommand(@StringCommands String command) {
@@ -154,6 +206,7 @@ public class RCanvasManager extends ReactViewManager {
             case StringCommands.COMMAND_CLEAR: return Commands.CLEAR;
             case StringCommands.COMMAND_UPDATE: return Commands.UPDATE;
             case StringCommands.COMMAND_SET_PATH_ATTRIBUTES: return Commands.SET_PATH_ATTRIBUTES;
+            case StringCommands.COMMAND_APPLY_OPS: return Commands.APPLY_OPS;
             default:
                 throw new JSApplicationIllegalArgumentException(
                         String.format(
@@ -171,7 +224,31 @@ public class RCanvasManager extends ReactViewManager {
 */
     @Override
     public void receiveCommand(@NonNull ReactViewGroup root, @Commands int command, @Nullable ReadableArray args) {
-        RCanvasHandler view = ((RCanvasHandler) root);
+        handleCommand((RCanvasHandler) root, command, args);
+    }
+
+    /**
+     * counts and records the command, then runs it, see {@link TraceReplay}
+     */
+    static void handleCommand(RCanvasHandler view, @Commands int command, @Nullable ReadableArray args) {
+        view.getMetrics().onCommand(command);
+        TraceRecorder recorder = view.getTraceRecorder();
+        if (recorder != null) {
+            recorder.onCommand(command, args);
+        }
+        runCommand(view, command, args);
+    }
+
+    private static void runCommand(final RCanvasHandler view, @Commands final int command, @Nullable final ReadableArray args) {
+        if (view.isUpdatePending()) {
+            view.deferUntilUpdated(new Runnable() {
+                @Override
+                public void run() {
+                    runCommand(view, command, args);
+                }
+            });
+            return;
+        }
         switch (command) {
             case Commands.ALLOC: {
                 int id = args.getInt(0);
@@ -207,12 +284,17 @@ public class RCanvasManager extends ReactViewManager {
                 view.setAttributes(id, attributes, true);
                 return;
             }
+            case Commands.APPLY_OPS: {
+                String origin = !args.isNull(0) ? args.getString(0) : null;
+                view.applyOps(origin, args.getArray(1));
+                return;
+            }
             default:
                 throw new JSApplicationIllegalArgumentException(
                         String.format(
                                 "Unsupported command %d received by %s.",
                                 command,
-                                getClass().getSimpleName())
+                                RCanvasManager.class.getSimpleName())
                 );
         }
     }
@@ -227,6 +309,7 @@ public class RCanvasManager extends ReactViewManager {
                 .put(StringCommands.COMMAND_CLEAR, Commands.CLEAR)
                 .put(StringCommands.COMMAND_UPDATE, Commands.UPDATE)
                 .put(StringCommands.COMMAND_SET_PATH_ATTRIBUTES, Commands.SET_PATH_ATTRIBUTES)
+                .put(StringCommands.COMMAND_APPLY_OPS, Commands.APPLY_OPS)
                 .build();
 
     }
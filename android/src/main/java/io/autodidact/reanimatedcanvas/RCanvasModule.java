@@ -2,16 +2,23 @@ package io.autodidact.reanimatedcanvas;
 
 import android.annotation.TargetApi;
 import android.graphics.PointF;
+import android.os.SystemClock;
+import android.util.SparseArray;
 
 import androidx.annotation.NonNull;
 
+import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.Callback;
 import com.facebook.react.bridge.Dynamic;
+import com.facebook.react.bridge.JSApplicationIllegalArgumentException;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.ReadableType;
+import com.facebook.react.bridge.UiThreadUtil;
+import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.WritableNativeArray;
 import com.facebook.react.module.annotations.ReactModule;
 import com.facebook.react.uimanager.NativeViewHierarchyManager;
@@ -19,16 +26,75 @@ import com.facebook.react.uimanager.PixelUtil;
 import com.facebook.react.uimanager.UIBlock;
 import com.facebook.react.uimanager.UIManagerModule;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import javax.annotation.Nullable;
 
+import static io.autodidact.reanimatedcanvas.RCanvasManager.TAG;
+
 @ReactModule(name = RCanvasModule.NAME)
 public class RCanvasModule extends ReactContextBaseJavaModule {
     static final String NAME = "ReanimatedCanvasModule";
 
+    /**
+     * serves read-only queries against {@link SceneSnapshot}s, off the UI thread
+     */
+    private final ScheduledExecutorService mQueryExecutor = Executors.newSingleThreadScheduledExecutor();
+    /**
+     * cursors left unread for longer are closed, releasing their snapshot
+     */
+    static final long CURSOR_TIMEOUT_MS = 60000;
+    /**
+     * confined to {@link #mQueryExecutor}
+     */
+    private final SparseArray<PathCursor> mCursors = new SparseArray<>();
+    private int mNextCursorId = 1;
+    private boolean mCursorSweepScheduled = false;
+    private final java.lang.Runnable mCursorSweep = new java.lang.Runnable() {
+        @Override
+        public void run() {
+            mCursorSweepScheduled = false;
+            long now = SystemClock.uptimeMillis();
+            for (int i = mCursors.size() - 1; i >= 0; i--) {
+                if (now - mCursors.valueAt(i).getLastAccess() >= CURSOR_TIMEOUT_MS) {
+                    mCursors.removeAt(i);
+                }
+            }
+            scheduleCursorSweep();
+        }
+    };
+    /**
+     * runs import producers, which block while their import's queue is full, see {@link StreamingImport#offer}
+     * kept apart from the executors background updates depend on, which a blocked producer would otherwise stall
+     */
+    private final ExecutorService mImportExecutor = Executors.newSingleThreadExecutor();
+    private final ConcurrentHashMap<Integer, StreamingImport> mImports = new ConcurrentHashMap<>();
+    private final AtomicInteger mNextImportId = new AtomicInteger(1);
+
     RCanvasModule(ReactApplicationContext reactContext) {
         super(reactContext);
     }
 
+    @Override
+    public void onCatalystInstanceDestroy() {
+        super.onCatalystInstanceDestroy();
+        mQueryExecutor.shutdownNow();
+        mImportExecutor.shutdownNow();
+    }
+
     @NonNull
     @Override
     public String getName() {
@@ -39,18 +105,20 @@ public class RCanvasModule extends ReactContextBaseJavaModule {
     @TargetApi(19)
     public void isPointOnPath(final int tag, final float x, final float y, @Nullable final Dynamic pathId,
                               final Callback success, final Callback error) {
+        final PointF point = new PointF(PixelUtil.toPixelFromDIP(x), PixelUtil.toPixelFromDIP(y));
+        final boolean allPaths = pathId == null || pathId.getType() == ReadableType.Null;
+        final int id = allPaths ? 0 : pathId.asInt();
         try {
-            run(tag, new Runnable() {
+            query(tag, new Query() {
                 @Override
-                public void run(RCanvas view) {
-                    IntersectionHelper intersectionHelper = view.getIntersectionHelper();
-                    PointF point = new PointF(PixelUtil.toPixelFromDIP(x), PixelUtil.toPixelFromDIP(y));
-                    success.invoke((pathId == null || pathId.getType() == ReadableType.Null) ?
-                            intersectionHelper.isPointOnPath(point):
-                            intersectionHelper.isPointOnPath(point, pathId.asInt())
+                public void run(SceneSnapshot snapshot) {
+                    PointF documentPoint = snapshot.toDocumentPoint(point);
+                    success.invoke(allPaths ?
+                            snapshot.isPointOnPath(documentPoint):
+                            snapshot.isPointOnPath(documentPoint, id)
                     );
                 }
-            });
+            }, error);
         } catch (Throwable e) {
             error.invoke(e);
         }
@@ -59,23 +127,512 @@ public class RCanvasModule extends ReactContextBaseJavaModule {
     @ReactMethod
     public void getPaths(final int tag, final ReadableArray idArray, final boolean includePoints, final Callback success, final Callback error) {
         try {
-            run(tag, new Runnable() {
+            query(tag, new Query() {
                 @Override
-                public void run(RCanvas view) {
+                public void run(SceneSnapshot snapshot) {
                     WritableNativeArray paths = new WritableNativeArray();
-                    int pathId;
                     for (int i = 0; i < idArray.size(); i++) {
-                        pathId = idArray.getInt(i);
-                        paths.pushMap(view.getPath(pathId).toWritableMap(includePoints));
+                        paths.pushMap(snapshot.getStroke(idArray.getInt(i)).toWritableMap(includePoints));
                     }
                     success.invoke(paths);
                 }
+            }, error);
+        } catch (Throwable e) {
+            error.invoke(e);
+        }
+    }
+
+    /**
+     * @param maxPoints pass a negative value to retrieve all points from `fromPointIndex`
+     */
+    @ReactMethod
+    public void getPathRange(final int tag, final int pathId, final int fromPointIndex, final int maxPoints,
+                             final Callback success, final Callback error) {
+        try {
+            query(tag, new Query() {
+                @Override
+                public void run(SceneSnapshot snapshot) {
+                    success.invoke(snapshot.getStroke(pathId).toWritableMap(fromPointIndex, maxPoints));
+                }
+            }, error);
+        } catch (Throwable e) {
+            error.invoke(e);
+        }
+    }
+
+    /**
+     * resolves the strokes added, changed and removed after `version`, see {@link SceneSnapshot#getChangesSince}
+     * @param version the `version` of the previous result, pass 0 for the first sync
+     */
+    @ReactMethod
+    public void getChangesSince(final int tag, final double version, final Callback success, final Callback error) {
+        try {
+            query(tag, new Query() {
+                @Override
+                public void run(SceneSnapshot snapshot) {
+                    success.invoke(snapshot.getChangesSince((long) version));
+                }
+            }, error);
+        } catch (Throwable e) {
+            error.invoke(e);
+        }
+    }
+
+    /**
+     * opens a cursor over a snapshot of the requested paths, read it in bounded chunks with {@link #readPathCursor}
+     * @param idArray pass null to iterate all paths
+     * @param maxPoints max number of points per chunk
+     */
+    @ReactMethod
+    public void openPathCursor(final int tag, @Nullable final ReadableArray idArray, final int maxPoints,
+                               final Callback success, final Callback error) {
+        try {
+            query(tag, new Query() {
+                @Override
+                public void run(SceneSnapshot snapshot) {
+                    int cursorId = mNextCursorId++;
+                    mCursors.put(cursorId, new PathCursor(tag, snapshot.select(idArray), maxPoints));
+                    scheduleCursorSweep();
+                    success.invoke(cursorId);
+                }
+            }, error);
+        } catch (Throwable e) {
+            error.invoke(e);
+        }
+    }
+
+    /**
+     * resolves the next chunk `{ paths, done }`, the cursor is closed once done
+     */
+    @ReactMethod
+    public void readPathCursor(final int cursorId, final Callback success, final Callback error) {
+        mQueryExecutor.execute(new java.lang.Runnable() {
+            @Override
+            public void run() {
+                try {
+                    PathCursor cursor = mCursors.get(cursorId);
+                    if (cursor == null) {
+                        throw new JSApplicationIllegalArgumentException(String.format(Locale.ENGLISH, "%s failed to find cursor#%d", TAG, cursorId));
+                    }
+                    WritableMap chunk = cursor.next();
+                    if (cursor.isDone()) {
+                        mCursors.remove(cursorId);
+                    }
+                    success.invoke(chunk);
+                } catch (Throwable e) {
+                    error.invoke(e);
+                }
+            }
+        });
+    }
+
+    @ReactMethod
+    public void closePathCursor(final int cursorId) {
+        mQueryExecutor.execute(new java.lang.Runnable() {
+            @Override
+            public void run() {
+                mCursors.remove(cursorId);
+            }
+        });
+    }
+
+    /**
+     * closes the cursors opened on the canvas, called when it is dropped
+     */
+    void closePathCursors(final int tag) {
+        mQueryExecutor.execute(new java.lang.Runnable() {
+            @Override
+            public void run() {
+                for (int i = mCursors.size() - 1; i >= 0; i--) {
+                    if (mCursors.valueAt(i).getTag() == tag) {
+                        mCursors.removeAt(i);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * confined to {@link #mQueryExecutor}
+     */
+    private void scheduleCursorSweep() {
+        if (!mCursorSweepScheduled && mCursors.size() > 0) {
+            mCursorSweepScheduled = true;
+            mQueryExecutor.schedule(mCursorSweep, CURSOR_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * writes all paths to `filePath` in the compact format described by {@link DrawingSerializer}
+     * resolves `{ paths, points, bytes, duration }`
+     */
+    @ReactMethod
+    public void exportBinary(final int tag, final String filePath, final Callback success, final Callback error) {
+        try {
+            query(tag, new Query() {
+                @Override
+                public void run(SceneSnapshot snapshot) {
+                    long start = SystemClock.uptimeMillis();
+                    SceneSnapshot.StrokeSnapshot[] strokes = snapshot.select(null);
+                    long bytes;
+                    try {
+                        bytes = DrawingSerializer.write(strokes, new File(filePath));
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    int pointCount = 0;
+                    for (SceneSnapshot.StrokeSnapshot stroke : strokes) {
+                        pointCount += stroke.getPointCount();
+                    }
+                    WritableMap out = Arguments.createMap();
+                    out.putInt("paths", strokes.length);
+                    out.putInt("points", pointCount);
+                    out.putDouble("bytes", bytes);
+                    out.putDouble("duration", SystemClock.uptimeMillis() - start);
+                    success.invoke(out);
+                }
+            }, error);
+        } catch (Throwable e) {
+            error.invoke(e);
+        }
+    }
+
+    /**
+     * reads a file written by {@link #exportBinary}, adding its paths to the canvas or replacing existing ones.
+     * Decoding and path building run off the UI thread, the paths are added in a single frame.
+     * resolves `{ paths, points, duration }`
+     */
+    @ReactMethod
+    public void importBinary(final int tag, final String filePath, final Callback success, final Callback error) {
+        try {
+            run(tag, new Runnable() {
+                @Override
+                public void run(RCanvas view) {
+                    final RCanvasHandler handler = (RCanvasHandler) view;
+                    final long start = SystemClock.uptimeMillis();
+                    handler.beginBackgroundUpdate();
+                    mQueryExecutor.execute(new java.lang.Runnable() {
+                        @Override
+                        public void run() {
+                            final ArrayList<StrokeRecord> records;
+                            try {
+                                records = DrawingSerializer.read(new File(filePath));
+                            } catch (final Throwable e) {
+                                handler.post(new java.lang.Runnable() {
+                                    @Override
+                                    public void run() {
+                                        handler.endBackgroundUpdate();
+                                    }
+                                });
+                                error.invoke(e);
+                                return;
+                            }
+                            PathBuilder.buildAll(records, new PathBuilder.Callback() {
+                                @Override
+                                public void onComplete(final PathBuilder.Result[] results, final int pointCount, long buildTime) {
+                                    handler.postOnAnimation(new java.lang.Runnable() {
+                                        @Override
+                                        public void run() {
+                                            try {
+                                                handler.applyStrokes(records, results);
+                                            } catch (Throwable e) {
+                                                error.invoke(e);
+                                                return;
+                                            } finally {
+                                                handler.endBackgroundUpdate();
+                                            }
+                                            WritableMap out = Arguments.createMap();
+                                            out.putInt("paths", records.size());
+                                            out.putInt("points", pointCount);
+                                            out.putDouble("duration", SystemClock.uptimeMillis() - start);
+                                            success.invoke(out);
+                                        }
+                                    });
+                                }
+
+                                @Override
+                                public void onError(Throwable e) {
+                                    handler.post(new java.lang.Runnable() {
+                                        @Override
+                                        public void run() {
+                                            handler.endBackgroundUpdate();
+                                        }
+                                    });
+                                    error.invoke(e);
+                                }
+                            });
+                        }
+                    });
+                }
+            });
+        } catch (Throwable e) {
+            error.invoke(e);
+        }
+    }
+
+    /**
+     * adds the paths of a binary drawing file to the canvas progressively, while the file is being decoded
+     * progress is reported by `onImportProgress`
+     * resolves `{ importId, paths, points, duration }` once every path was added
+     */
+    @ReactMethod
+    public void streamBinary(final int tag, final String filePath, final Callback success, final Callback error) {
+        try {
+            run(tag, new Runnable() {
+                @Override
+                public void run(RCanvas view) {
+                    final StreamingImport streamingImport;
+                    try {
+                        streamingImport = new StreamingImport(mNextImportId.getAndIncrement(), (RCanvasHandler) view);
+                    } catch (Throwable e) {
+                        error.invoke(e);
+                        return;
+                    }
+                    mImportExecutor.execute(new java.lang.Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                DrawingSerializer.Reader reader = new DrawingSerializer.Reader(new File(filePath));
+                                try {
+                                    StrokeRecord record;
+                                    while (reader.hasNext()) {
+                                        record = reader.next();
+                                        streamingImport.offer(record, PathUtil.obtain(record.points));
+                                    }
+                                } finally {
+                                    reader.close();
+                                }
+                            } catch (Throwable e) {
+                                streamingImport.fail(e);
+                                error.invoke(e);
+                                return;
+                            }
+                            streamingImport.close(createImportListener(streamingImport, success));
+                        }
+                    });
+                }
+            });
+        } catch (Throwable e) {
+            error.invoke(e);
+        }
+    }
+
+    /**
+     * opens an import stream that adds paths to the canvas as they are written, see {@link #writeImportStream}
+     * resolves the import id
+     */
+    @ReactMethod
+    public void openImportStream(final int tag, final Callback success, final Callback error) {
+        try {
+            run(tag, new Runnable() {
+                @Override
+                public void run(RCanvas view) {
+                    int importId = mNextImportId.getAndIncrement();
+                    try {
+                        mImports.put(importId, new StreamingImport(importId, (RCanvasHandler) view));
+                    } catch (Throwable e) {
+                        error.invoke(e);
+                        return;
+                    }
+                    success.invoke(importId);
+                }
+            });
+        } catch (Throwable e) {
+            error.invoke(e);
+        }
+    }
+
+    /**
+     * @param paths `[{ id, strokeColor, strokeWidth, points }]`, decoded off the UI thread in the order they were written
+     * resolves once the paths are queued, which waits while the import's queue is full, a failure closes the import with an error
+     */
+    @ReactMethod
+    public void writeImportStream(final int importId, final ReadableArray paths, final Callback success, final Callback error) {
+        try {
+            final StreamingImport streamingImport = getImport(importId);
+            mImportExecutor.execute(new java.lang.Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        ReadableMap entry;
+                        StrokeRecord record;
+                        for (int i = 0; i < paths.size(); i++) {
+                            entry = paths.getMap(i);
+                            record = new StrokeRecord(
+                                    entry.getInt("id"),
+                                    entry.getInt("strokeColor"),
+                                    PixelUtil.toPixelFromDIP(entry.getDouble("strokeWidth")),
+                                    Utility.processPointArray(entry.getArray("points"))
+                            );
+                            streamingImport.offer(record, PathUtil.obtain(record.points));
+                        }
+                    } catch (Throwable e) {
+                        mImports.remove(importId);
+                        streamingImport.fail(e);
+                        error.invoke(e);
+                        return;
+                    }
+                    success.invoke();
+                }
             });
         } catch (Throwable e) {
             error.invoke(e);
         }
     }
 
+    /**
+     * resolves `{ importId, paths, points, duration }` once every written path was added
+     */
+    @ReactMethod
+    public void closeImportStream(final int importId, final Callback success, final Callback error) {
+        try {
+            final StreamingImport streamingImport = getImport(importId);
+            mImportExecutor.execute(new java.lang.Runnable() {
+                @Override
+                public void run() {
+                    if (mImports.remove(importId) == null) {
+                        error.invoke(new JSApplicationIllegalArgumentException(String.format(Locale.ENGLISH, "import stream#%d failed or was closed", importId)));
+                        return;
+                    }
+                    streamingImport.close(createImportListener(streamingImport, success));
+                }
+            });
+        } catch (Throwable e) {
+            error.invoke(e);
+        }
+    }
+
+    private StreamingImport getImport(int importId) {
+        StreamingImport streamingImport = mImports.get(importId);
+        if (streamingImport == null) {
+            throw new JSApplicationIllegalArgumentException(String.format(Locale.ENGLISH, "failed to find import stream#%d", importId));
+        }
+        return streamingImport;
+    }
+
+    private static StreamingImport.Listener createImportListener(final StreamingImport streamingImport, final Callback success) {
+        return new StreamingImport.Listener() {
+            @Override
+            public void onComplete(int pathCount, int pointCount, long duration) {
+                WritableMap out = Arguments.createMap();
+                out.putInt("importId", streamingImport.getImportId());
+                out.putInt("paths", pathCount);
+                out.putInt("points", pointCount);
+                out.putDouble("duration", duration);
+                success.invoke(out);
+            }
+        };
+    }
+
+    /**
+     * renders the paths into an image file off the UI thread
+     * @param options `{ format, quality, scale, region, transparent, filePath }`, all optional
+     * resolves `{ filePath, width, height, duration }`
+     */
+    @ReactMethod
+    public void exportImage(final int tag, @Nullable final ReadableMap options, final Callback success, final Callback error) {
+        try {
+            final ImageExporter exporter = new ImageExporter(options);
+            query(tag, new Query() {
+                @Override
+                public void run(SceneSnapshot snapshot) {
+                    long start = SystemClock.uptimeMillis();
+                    int[] size;
+                    File file;
+                    try {
+                        file = options != null && options.hasKey("filePath") ?
+                                new File(options.getString("filePath")) :
+                                File.createTempFile("RCanvas", "." + exporter.getExtension(), getReactApplicationContext().getCacheDir());
+                        size = exporter.export(snapshot, file);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    WritableMap out = Arguments.createMap();
+                    out.putString("filePath", file.getAbsolutePath());
+                    out.putInt("width", size[0]);
+                    out.putInt("height", size[1]);
+                    out.putDouble("duration", SystemClock.uptimeMillis() - start);
+                    success.invoke(out);
+                }
+            }, error);
+        } catch (Throwable e) {
+            error.invoke(e);
+        }
+    }
+
+    /**
+     * streams the paths as SVG to a file off the UI thread
+     * @param options `{ filePath }`, defaults to a temporary file
+     * resolves `{ filePath, duration }`
+     */
+    @ReactMethod
+    public void exportSvg(final int tag, @Nullable final ReadableMap options, final Callback success, final Callback error) {
+        try {
+            query(tag, new Query() {
+                @Override
+                public void run(SceneSnapshot snapshot) {
+                    long start = SystemClock.uptimeMillis();
+                    File file;
+                    try {
+                        file = options != null && options.hasKey("filePath") ?
+                                new File(options.getString("filePath")) :
+                                File.createTempFile("RCanvas", ".svg", getReactApplicationContext().getCacheDir());
+                        FileOutputStream stream = new FileOutputStream(file);
+                        try {
+                            Writer writer = new BufferedWriter(Channels.newWriter(stream.getChannel(), "UTF-8"));
+                            new SvgExporter(writer).export(snapshot);
+                            writer.close();
+                        } finally {
+                            stream.close();
+                        }
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    WritableMap out = Arguments.createMap();
+                    out.putString("filePath", file.getAbsolutePath());
+                    out.putDouble("duration", SystemClock.uptimeMillis() - start);
+                    success.invoke(out);
+                }
+            }, error);
+        } catch (Throwable e) {
+            error.invoke(e);
+        }
+    }
+
+    /**
+     * ingestion methods bypass the UI batch, samples are drained by the canvas once per frame
+     * see {@link SampleRingBuffer}
+     */
+    @ReactMethod
+    public void queueAlloc(final int tag, final int pathId, @Nullable final Dynamic strokeColor, @Nullable final Dynamic strokeWidth) {
+        boolean hasColor = strokeColor != null && strokeColor.getType() == ReadableType.Number;
+        boolean hasWidth = strokeWidth != null && strokeWidth.getType() == ReadableType.Number;
+        getSampleBuffer(tag).offerAlloc(
+                pathId,
+                hasColor,
+                hasColor ? strokeColor.asInt() : 0,
+                hasWidth ? PixelUtil.toPixelFromDIP(strokeWidth.asDouble()) : Float.NaN
+        );
+    }
+
+    @ReactMethod
+    public void queuePoint(final int tag, final int pathId, final float x, final float y) {
+        getSampleBuffer(tag).offerPoint(pathId, PixelUtil.toPixelFromDIP(x), PixelUtil.toPixelFromDIP(y));
+    }
+
+    @ReactMethod
+    public void queueEndInteraction(final int tag, final int pathId) {
+        getSampleBuffer(tag).offerEndInteraction(pathId);
+    }
+
+    private static SampleRingBuffer getSampleBuffer(int tag) {
+        SampleRingBuffer buffer = SampleRingBuffer.get(tag);
+        if (buffer == null) {
+            throw new JSApplicationIllegalArgumentException(String.format(Locale.ENGLISH, "%s failed to find canvas#%d", TAG, tag));
+        }
+        return buffer;
+    }
+
     @ReactMethod
     public void save(final int tag, final Callback success, final Callback error) {
         try {
@@ -105,10 +662,197 @@ public class RCanvasModule extends ReactContextBaseJavaModule {
         }
     }
 
+    /**
+     * resolves `{ hits, misses, hitRate, bytes }` of the canvas' {@link CommittedLayer}
+     */
+    @ReactMethod
+    public void getLayerStats(final int tag, final Callback success, final Callback error) {
+        try {
+            run(tag, new Runnable() {
+                @Override
+                public void run(RCanvas view) {
+                    success.invoke(view.getCommittedLayer().getStats());
+                }
+            });
+        } catch (Throwable e) {
+            error.invoke(e);
+        }
+    }
+
+    @ReactMethod
+    public void getMetrics(final int tag, final Callback success, final Callback error) {
+        try {
+            run(tag, new Runnable() {
+                @Override
+                public void run(RCanvas view) {
+                    success.invoke(view.getMetrics().toWritableMap(view));
+                }
+            });
+        } catch (Throwable e) {
+            error.invoke(e);
+        }
+    }
+
+    /**
+     * records the commands the canvas receives, along with save and restore, into a trace file until {@link #stopTrace}
+     * @param filePath pass null to record into a temporary file
+     * resolves the trace's file path
+     */
+    @ReactMethod
+    public void startTrace(final int tag, @Nullable final String filePath, final Callback success, final Callback error) {
+        try {
+            run(tag, new Runnable() {
+                @Override
+                public void run(RCanvas view) {
+                    try {
+                        if (view.isReplaying()) {
+                            throw new JSApplicationIllegalArgumentException(String.format(Locale.ENGLISH, "%s can't record a trace while replaying one", TAG));
+                        }
+                        File file = filePath != null ?
+                                new File(filePath) :
+                                File.createTempFile("RCanvas", ".trace", getReactApplicationContext().getCacheDir());
+                        TraceRecorder current = view.stopTrace();
+                        if (current != null) {
+                            current.stop(null);
+                        }
+                        view.startTrace(new TraceRecorder(file));
+                        success.invoke(file.getAbsolutePath());
+                    } catch (Throwable e) {
+                        error.invoke(e);
+                    }
+                }
+            });
+        } catch (Throwable e) {
+            error.invoke(e);
+        }
+    }
+
+    /**
+     * resolves `{ filePath, commands, bytes, duration }` once the trace is written
+     */
+    @ReactMethod
+    public void stopTrace(final int tag, final Callback success, final Callback error) {
+        try {
+            run(tag, new Runnable() {
+                @Override
+                public void run(RCanvas view) {
+                    TraceRecorder recorder = view.stopTrace();
+                    if (recorder == null) {
+                        error.invoke(new JSApplicationIllegalArgumentException(String.format(Locale.ENGLISH, "%s is not recording a trace", TAG)));
+                        return;
+                    }
+                    recorder.stop(new TraceRecorder.Listener() {
+                        @Override
+                        public void onComplete(File file, int recordCount, long bytes, long duration) {
+                            WritableMap out = Arguments.createMap();
+                            out.putString("filePath", file.getAbsolutePath());
+                            out.putInt("commands", recordCount);
+                            out.putDouble("bytes", bytes);
+                            out.putDouble("duration", duration);
+                            success.invoke(out);
+                        }
+
+                        @Override
+                        public void onError(Throwable e) {
+                            error.invoke(e);
+                        }
+                    });
+                }
+            });
+        } catch (Throwable e) {
+            error.invoke(e);
+        }
+    }
+
+    /**
+     * feeds a trace recorded by {@link #startTrace} back into the canvas, see {@link TraceReplay}
+     * rejects while the canvas is recording a trace, so the replay isn't recorded into it
+     * @param realtime dispatches commands at their recorded times, otherwise as fast as frames allow
+     * resolves `{ commands, points, duration, commandsPerSecond, pointsPerSecond, frameTime }`
+     */
+    @ReactMethod
+    public void replayTrace(final int tag, final String filePath, final boolean realtime, final Callback success, final Callback error) {
+        try {
+            run(tag, new Runnable() {
+                @Override
+                public void run(final RCanvas view) {
+                    PathBuilder.getExecutor().execute(new java.lang.Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                final ArrayList<TraceRecorder.Record> records = TraceRecorder.read(new File(filePath));
+                                UiThreadUtil.runOnUiThread(new java.lang.Runnable() {
+                                    @Override
+                                    public void run() {
+                                        try {
+                                            new TraceReplay((RCanvasHandler) view, records, realtime, new TraceReplay.Listener() {
+                                                @Override
+                                                public void onComplete(WritableMap stats) {
+                                                    success.invoke(stats);
+                                                }
+
+                                                @Override
+                                                public void onError(Throwable e) {
+                                                    error.invoke(e);
+                                                }
+                                            }).start();
+                                        } catch (Throwable e) {
+                                            error.invoke(e);
+                                        }
+                                    }
+                                });
+                            } catch (Throwable e) {
+                                error.invoke(e);
+                            }
+                        }
+                    });
+                }
+            });
+        } catch (Throwable e) {
+            error.invoke(e);
+        }
+    }
+
     interface Runnable {
         void run(RCanvas view);
     }
 
+    /**
+     * a read-only query, evaluated on the query executor against a snapshot of the canvas
+     */
+    interface Query {
+        void run(SceneSnapshot snapshot);
+    }
+
+    /**
+     * obtains the snapshot in a UI block so the query observes every command dispatched before it
+     */
+    private void query(final int tag, final Query query, final Callback error) {
+        run(tag, new Runnable() {
+            @Override
+            public void run(RCanvas view) {
+                try {
+                    runInBackground(view.obtainSnapshot(), query, error);
+                } catch (Throwable e) {
+                    error.invoke(e);
+                }
+            }
+        });
+    }
+
+    private void runInBackground(final SceneSnapshot snapshot, final Query query, final Callback error) {
+        mQueryExecutor.execute(new java.lang.Runnable() {
+            @Override
+            public void run() {
+                try {
+                    query.run(snapshot);
+                } catch (Throwable e) {
+                    error.invoke(e);
+                }
+            }
+        });
+    }
+
     private void run(final int tag, final Runnable action) {
         final ReactApplicationContext context = getReactApplicationContext();
         UIManagerModule uiManager = context.getNativeModule(UIManagerModule.class);
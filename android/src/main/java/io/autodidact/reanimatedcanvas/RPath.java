@@ -6,8 +6,6 @@ import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.PointF;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffXfermode;
 import android.graphics.RectF;
 import android.view.View;
 
@@ -24,6 +22,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Locale;
 import java.util.Stack;
 
@@ -34,11 +33,38 @@ public class RPath extends View {
     private boolean mOverriddenHitSlop = false;
     private @RPath.ResizeMode String mResizeMode = RPath.ResizeMode.NONE;
 
-    private Paint mPaint;
-    protected Path mPath;
+    private StrokeStyle mStyle;
+    /**
+     * null once trimmed, see {@link #getPath()}
+     */
+    @Nullable protected Path mPath;
 
     protected ArrayList<PointF> mTempPoints;
 
+    private SceneSnapshot.StrokeSnapshot mSnapshot;
+
+    /**
+     * see {@link VersionLog}
+     */
+    private long mCreatedVersion = 0;
+    private long mVersion = 0;
+
+    /**
+     * bounds of the current state's points, the curves built from them never leave these bounds
+     */
+    private final RectF mPointBounds = new RectF();
+    private boolean mPointBoundsValid = true;
+    private final RectF mDrawBounds = new RectF();
+
+    /**
+     * simplified paths indexed by {@link LevelOfDetail} level, built lazily off the UI thread
+     */
+    private Path[] mLevels;
+    private int mLevel = LevelOfDetail.NONE;
+    private float mViewportScale = 1;
+    private int mLevelsGeneration = 0;
+    private int mPendingLevels = 0;
+
     public RPath(ReactContext context) {
         super(context);
         mPath = new Path();
@@ -55,6 +81,40 @@ public class RPath extends View {
         mPathId = id;
     }
 
+    /**
+     * invoked by the parent {@link RCanvas} once the path is registered
+     */
+    void onRegistered(long version) {
+        mCreatedVersion = version;
+        mVersion = version;
+        mSnapshot = null;
+    }
+
+    long getCreatedVersion() {
+        return mCreatedVersion;
+    }
+
+    /**
+     * @return the scene version of the last modification, see {@link VersionLog}
+     */
+    long getVersion() {
+        return mVersion;
+    }
+
+    /**
+     * marks `state` dirty and bumps the path's version
+     */
+    private void setDirty(RPathState state) {
+        state.setDirty();
+        bumpVersion();
+    }
+
+    private void bumpVersion() {
+        if (getParent() instanceof RCanvas) {
+            mVersion = ((RCanvas) getParent()).getVersionLog().next();
+        }
+    }
+
     public RPathState getState() {
         return mPathStateStack.peek();
     }
@@ -66,12 +126,9 @@ public class RPath extends View {
     public void setStrokeColor(int color) {
         RPathState currentState = mPathStateStack.peek();
         currentState.strokeColor = color;
-        currentState.setDirty();
-        boolean isErase = currentState.strokeColor == Color.TRANSPARENT;
-        Paint paint = getPaint();
-        paint.setColor(currentState.strokeColor);
-        paint.setXfermode(new PorterDuffXfermode(isErase ? PorterDuff.Mode.CLEAR : PorterDuff.Mode.SRC_OVER));
+        setDirty(currentState);
 
+        invalidateSnapshot();
         postInvalidateOnAnimation();
     }
 
@@ -82,9 +139,9 @@ public class RPath extends View {
     public void setStrokeWidth(float width) {
         RPathState currentState = mPathStateStack.peek();
         currentState.strokeWidth = width;
-        currentState.setDirty();
-        getPaint().setStrokeWidth(currentState.strokeWidth);
+        setDirty(currentState);
 
+        invalidateSnapshot();
         postInvalidateOnAnimation();
     }
 
@@ -113,11 +170,35 @@ public class RPath extends View {
             }
         }
 
-        mPathStateStack.set(mPathStateStack.size() - 1, mPathStateStack.get(saveCount));
+        int top = mPathStateStack.size() - 1;
+        RPathState replaced = mPathStateStack.get(top);
+        mPathStateStack.set(top, mPathStateStack.get(saveCount));
+        if (mPathStateStack.indexOf(replaced) == -1) {
+            replaced.release();
+        }
+        mPointBoundsValid = false;
+        if (isDirty) {
+            bumpVersion();
+        }
+        invalidateLevels();
+        updateLevel();
+        invalidateSnapshot();
+        postInvalidateOnAnimation();
 
         return isDirty;
     }
 
+    /**
+     * frees the points of every state, the path must not be used afterwards
+     */
+    void release() {
+        HashSet<RPathState> states = new HashSet<>(mPathStateStack);
+        for (RPathState state: states) {
+            state.release();
+        }
+        invalidateLevels();
+    }
+
     RectF getHitSlop() {
         float radius = getStrokeWidth() / 2;
         return new RectF(
@@ -135,6 +216,7 @@ public class RPath extends View {
     void setHitSlop(RectF hitSlop, boolean override) {
         if (override || !mOverriddenHitSlop) {
             mHitSlop = hitSlop;
+            invalidateSnapshot();
         }
         if (override) {
             mOverriddenHitSlop = true;
@@ -151,56 +233,309 @@ public class RPath extends View {
 
     public void addPoint(PointF p) {
         RPathState currentState = mPathStateStack.peek();
-        ArrayList<PointF> points = currentState.points;
+        ArrayList<PointF> points = currentState.getPoints();
+        Path path = getPath();
         points.add(p);
-        currentState.setDirty();
-        PathUtil.addLastPoint(mPath, points);
+        setDirty(currentState);
+        PathUtil.addLastPoint(path, points);
+        invalidateLevels();
+        if (mPointBoundsValid) {
+            if (points.size() == 1) {
+                mPointBounds.set(p.x, p.y, p.x, p.y);
+            } else {
+                mPointBounds.union(p.x, p.y);
+            }
+        }
 
-        postInvalidateOnAnimation();
+        invalidateSnapshot();
+        invalidateLastSegment(points);
+    }
+
+    /**
+     * appends `added` with a single invalidation, for points that arrive in bulk
+     */
+    void addPoints(ArrayList<PointF> added) {
+        if (added.size() == 0) return;
+        RPathState currentState = mPathStateStack.peek();
+        ArrayList<PointF> points = currentState.getPoints();
+        Path path = getPath();
+        for (PointF p: added) {
+            points.add(p);
+            PathUtil.addLastPoint(path, points);
+        }
+        setDirty(currentState);
+        mPointBoundsValid = false;
+        invalidateLevels();
+        updateLevel();
+        invalidateSnapshot();
+        postInvalidateOnAnimation(getStrokeBounds());
+    }
+
+    /**
+     * the segment added by {@link PathUtil#addLastPoint} is bound by the last 3 points
+     */
+    private void invalidateLastSegment(ArrayList<PointF> points) {
+        int count = points.size();
+        PointF p = points.get(count - 1);
+        RectF dirty = new RectF(p.x, p.y, p.x, p.y);
+        for (int i = Math.max(0, count - 3); i < count - 1; i++) {
+            dirty.union(points.get(i).x, points.get(i).y);
+        }
+        postInvalidateOnAnimation(inflate(dirty, getStrokeWidth() / 2));
     }
 
     public void setPoints(@Nullable ArrayList<PointF> points) {
+        setPoints(points, null);
+    }
+
+    /**
+     * @param path a path prebuilt from `points` by {@link PathBuilder}, pass null to build it here
+     */
+    void setPoints(@Nullable ArrayList<PointF> points, @Nullable Path path) {
         if (points != null) {
-            RPathState currentState = mPathStateStack.peek();
-            ArrayList<PointF> mPoints = currentState.points;
-            mPoints.clear();
-            mPoints.addAll(points);
-            currentState.setDirty();
-            mPath.set(PathUtil.obtain(mPoints));
-
-            postInvalidateOnAnimation();
+            commitPoints(points);
+            setPath(path != null ? path : PathUtil.obtain(points));
+        }
+    }
+
+    /**
+     * commits `points` to state, the current path is drawn until {@link #setPath} swaps in one built from them
+     */
+    void commitPoints(ArrayList<PointF> points) {
+        RPathState currentState = mPathStateStack.peek();
+        postInvalidateOnAnimation(getStrokeBounds());
+        currentState.setPoints(points);
+        setDirty(currentState);
+        PathUtil.computeBounds(points, mPointBounds);
+        mPointBoundsValid = true;
+        invalidateLevels();
+        updateLevel();
+        invalidateSnapshot();
+    }
+
+    /**
+     * takes ownership of `path`, it must not be mutated by the caller afterwards
+     */
+    void setPath(Path path) {
+        mPath = path;
+        invalidateLevels();
+        updateLevel();
+        invalidateSnapshot();
+        postInvalidateOnAnimation(getStrokeBounds());
+    }
+
+    /**
+     * @return the path built from the current state's points, rebuilt if it was trimmed
+     */
+    Path getPath() {
+        if (mPath == null) {
+            mPath = PathUtil.obtain(mPathStateStack.peek().readPoints());
+        }
+        return mPath;
+    }
+
+    /**
+     * frees caches under memory pressure, including the cached snapshot, they are rebuilt lazily
+     * @param dropPath drops the cached path as well, rebuilt from the possibly compacted points on next use
+     */
+    void trim(boolean dropPath) {
+        invalidateLevels();
+        // the scene is unchanged, so the canvas isn't notified
+        mSnapshot = null;
+        if (dropPath) {
+            mPath = null;
+        }
+    }
+
+    /**
+     * compacts the points of saved states, see {@link RPathState#compact}
+     * @param includeCurrent compacts the current state as well, for paths that are not being drawn
+     */
+    void compactStates(@Nullable PointArena arena, boolean includeCurrent) {
+        RPathState current = mPathStateStack.peek();
+        for (RPathState state: mPathStateStack) {
+            // restored states are shared with the top of the stack
+            if (includeCurrent || state != current) {
+                state.compact(arena);
+            }
+        }
+    }
+
+    /**
+     * selects the level of detail to draw, see {@link LevelOfDetail#selectLevel}
+     * @param scale document to view scale
+     */
+    void setViewportScale(float scale) {
+        mViewportScale = scale;
+        updateLevel();
+    }
+
+    private void updateLevel() {
+        int level = LevelOfDetail.selectLevel(mViewportScale, mPathStateStack.peek().size());
+        if (level != mLevel) {
+            mLevel = level;
+            invalidate();
+        }
+    }
+
+    private void invalidateLevels() {
+        mLevels = null;
+        mPendingLevels = 0;
+        mLevelsGeneration++;
+    }
+
+    /**
+     * @return the path of the selected level, full detail is drawn until it is built
+     */
+    private Path getPathToDraw() {
+        if (mLevel == LevelOfDetail.NONE) return getPath();
+        if (mLevels != null && mLevels[mLevel] != null) return mLevels[mLevel];
+        buildLevel(mLevel);
+        return getPath();
+    }
+
+    private void buildLevel(final int level) {
+        if ((mPendingLevels & (1 << level)) != 0) return;
+        mPendingLevels |= 1 << level;
+        final int generation = mLevelsGeneration;
+        final ArrayList<PointF> points = mPathStateStack.peek().copyPoints();
+        PathBuilder.getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final Path path = PathUtil.obtain(LevelOfDetail.simplify(points, LevelOfDetail.TOLERANCES[level]));
+                postOnAnimation(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mLevelsGeneration) return;
+                        if (mLevels == null) {
+                            mLevels = new Path[LevelOfDetail.TOLERANCES.length];
+                        }
+                        mLevels[level] = path;
+                        if (level == mLevel) invalidate();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @return the bounds of the current state's points, empty if there are none
+     */
+    RectF getPointBounds() {
+        if (!mPointBoundsValid) {
+            mPathStateStack.peek().computeBounds(mPointBounds);
+            mPointBoundsValid = true;
+        }
+        return mPointBounds;
+    }
+
+    /**
+     * @return the bounds of the drawn stroke
+     */
+    RectF getStrokeBounds() {
+        return getStrokeBounds(new RectF());
+    }
+
+    RectF getStrokeBounds(RectF out) {
+        out.set(getPointBounds());
+        return inflate(out, getStrokeWidth() / 2);
+    }
+
+    /**
+     * @return whether this path draws anything within `rect`, used by the parent {@link RCanvas} to cull paths
+     */
+    boolean intersects(RectF rect) {
+        return mPathStateStack.peek().size() > 0 && RectF.intersects(getStrokeBounds(mDrawBounds), rect);
+    }
+
+    /**
+     * @return the bounds beyond which {@link #isPointOnPath} can't hit
+     */
+    RectF getHitBounds() {
+        return PathUtil.getHitBounds(getPointBounds(), getHitSlop());
+    }
+
+    /**
+     * 1px is added for antialiasing
+     */
+    private static RectF inflate(RectF rect, float radius) {
+        rect.inset(-radius - 1, -radius - 1);
+        return rect;
+    }
+
+    private void postInvalidateOnAnimation(RectF dirty) {
+        postInvalidateOnAnimation(
+                (int) Math.floor(dirty.left),
+                (int) Math.floor(dirty.top),
+                (int) Math.ceil(dirty.right),
+                (int) Math.ceil(dirty.bottom)
+        );
+    }
+
+    /**
+     * @return an immutable copy of this path, cached until the next mutation
+     */
+    SceneSnapshot.StrokeSnapshot getSnapshot() {
+        if (mSnapshot == null) {
+            mSnapshot = new SceneSnapshot.StrokeSnapshot(this);
+        }
+        return mSnapshot;
+    }
+
+    /**
+     * @return the cached snapshot, without taking one
+     */
+    @Nullable
+    SceneSnapshot.StrokeSnapshot peekSnapshot() {
+        return mSnapshot;
+    }
+
+    private void invalidateSnapshot() {
+        mSnapshot = null;
+        if (getParent() instanceof RCanvas) {
+            ((RCanvas) getParent()).onPathChanged(this);
         }
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
-        canvas.drawPath(mPath, getPaint());
+        drawTo(canvas);
     }
 
-    protected Paint getPaint() {
-        if (mPaint == null) {
-            RPathState currentsState = mPathStateStack.peek();
-            boolean isErase = currentsState.strokeColor == Color.TRANSPARENT;
-            mPaint = new Paint();
-            mPaint.setColor(currentsState.strokeColor);
-            mPaint.setStrokeWidth(currentsState.strokeWidth);
-            mPaint.setStyle(Paint.Style.STROKE);
-            mPaint.setStrokeCap(Paint.Cap.ROUND);
-            mPaint.setStrokeJoin(Paint.Join.ROUND);
-            mPaint.setAntiAlias(true);
-            mPaint.setXfermode(new PorterDuffXfermode(isErase ? PorterDuff.Mode.CLEAR : PorterDuff.Mode.SRC_OVER));
+    /**
+     * culling is done by the parent against its viewport, see {@link #intersects}
+     */
+    void drawTo(Canvas canvas) {
+        if (mPathStateStack.peek().size() == 0) {
+            return;
+        }
+        canvas.drawPath(getPathToDraw(), getPaint());
+    }
+
+    /**
+     * @return the shared style of the current state, resolved lazily so restoring state needs no bookkeeping
+     */
+    StrokeStyle getStyle() {
+        RPathState currentState = mPathStateStack.peek();
+        if (mStyle == null || !mStyle.matches(currentState.strokeColor, currentState.strokeWidth)) {
+            mStyle = StrokeStyle.obtain(currentState.strokeColor, currentState.strokeWidth);
         }
-        return mPaint;
+        return mStyle;
+    }
+
+    /**
+     * @return a shared paint, must not be mutated
+     */
+    protected Paint getPaint() {
+        return getStyle().paint;
     }
 
     @TargetApi(19)
     boolean isPointOnPath(final PointF point) {
-        if (mPathStateStack.peek().points.size() == 0) {
+        if (mPathStateStack.peek().size() == 0 || !Utility.contains(getHitBounds(), point)) {
             return false;
         }
-        return IntersectionHelper
-                .IntersectionOperator
-                .intersectsPath(point, getHitSlop(), mPath);
+        return PathUtil.isPointOnPath(mPathStateStack.peek().toArray(), point, getHitSlop());
     }
 
     public WritableMap toWritableMap(boolean includePoints){
@@ -212,7 +547,7 @@ public class RPath extends View {
         path.putDouble("strokeWidth", PixelUtil.toDIPFromPixel(currentState.strokeWidth));
 
         if (includePoints) {
-            for(PointF point: currentState.points){
+            for(PointF point: currentState.readPoints()){
                 arr.pushMap(Utility.toWritablePoint(point));
             }
             path.putArray("points", arr);
@@ -254,7 +589,7 @@ public class RPath extends View {
             case ResizeMode.NONE:
                 return;
         }
-        ArrayList<PointF> points = new ArrayList<>(mPathStateStack.peek().points);
+        ArrayList<PointF> points = mPathStateStack.peek().copyPoints();
         for (PointF point: points) {
             point.x *= scaler.x;
             point.y *= scaler.y;
@@ -270,7 +605,7 @@ public class RPath extends View {
         props.put("strokeColor", Utility.parseColorForJS(currentState.strokeColor));
         props.put("strokeWidth", currentState.strokeWidth);
         props.put("nativeStrokeWidth", PixelUtil.toDIPFromPixel(currentState.strokeWidth));
-        props.put("points", currentState.points);
+        props.put("points", currentState.readPoints());
         return String.format(Locale.ENGLISH, "RPath(%s)", props);
     }
 
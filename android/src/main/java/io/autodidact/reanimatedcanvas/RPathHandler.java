@@ -12,6 +12,8 @@ import java.util.ArrayList;
 public class RPathHandler extends RPath {
 
     private boolean mDidChange = false;
+    private int mBuildGeneration = 0;
+    private boolean mBuildPending = false;
 
     public RPathHandler(ReactContext context) {
         super(context);
@@ -55,10 +57,66 @@ public class RPathHandler extends RPath {
 
     @Override
     public void setPoints(@Nullable ArrayList<PointF> points) {
-        super.setPoints(points);
+        mBuildGeneration++;
+        mBuildPending = false;
+        if (points != null && points.size() >= PathBuilder.BACKGROUND_POINTS_THRESHOLD) {
+            setPointsInBackground(points);
+        } else {
+            super.setPoints(points);
+        }
         mDidChange = true;
     }
 
+    /**
+     * points are committed to state immediately so events and queries see them,
+     * the previous path is drawn until the path built by {@link PathBuilder} is swapped in on a later frame
+     */
+    private void setPointsInBackground(ArrayList<PointF> points) {
+        final int generation = mBuildGeneration;
+        mBuildPending = true;
+        commitPoints(points);
+        PathBuilder.build(new ArrayList<>(points), new PathBuilder.Callback() {
+            @Override
+            public void onComplete(final PathBuilder.Result[] results, int pointCount, long buildTime) {
+                postOnAnimation(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation == mBuildGeneration) {
+                            mBuildPending = false;
+                            setPath(results[0].path);
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void onError(final Throwable e) {
+                postOnAnimation(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mBuildGeneration) return;
+                        mBuildPending = false;
+                        RCanvasHandler handler = getCanvasHandler();
+                        if (handler != null) {
+                            handler.getEventDispatcher().emitError(RCanvasEventDispatcher.ErrorSource.PATH, getPathId(), e);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    @Override
+    public void addPoint(PointF p) {
+        if (mBuildPending) {
+            // the pending path doesn't contain the new point, build synchronously instead
+            mBuildGeneration++;
+            mBuildPending = false;
+            super.setPoints(getState().copyPoints());
+        }
+        super.addPoint(p);
+    }
+
     void finalizeUpdate() {
         RCanvasHandler handler = getCanvasHandler();
         if (mDidChange && handler != null) {
@@ -1,23 +1,37 @@
 package io.autodidact.reanimatedcanvas;
 
 import android.graphics.PointF;
+import android.graphics.RectF;
+
+import androidx.annotation.Nullable;
 
 import java.util.ArrayList;
 
 public class RPathState {
-    ArrayList<PointF> points;
+    /**
+     * null while the points are compacted, see {@link #compact}
+     */
+    @Nullable private ArrayList<PointF> mPoints;
+    @Nullable private CompactPoints mCompactPoints;
     int strokeColor;
     float strokeWidth;
     private boolean mDirty = false;
     private boolean mDirtyForCycle = false;
 
     RPathState(RPathState pathState) {
-        this(pathState.strokeColor, pathState.strokeWidth, pathState.points);
+        this(pathState.strokeColor, pathState.strokeWidth);
+        if (pathState.mCompactPoints != null) {
+            // immutable, so it can be shared
+            mPoints = null;
+            mCompactPoints = pathState.mCompactPoints.retain();
+        } else {
+            mPoints.addAll(pathState.mPoints);
+        }
     }
 
     RPathState(int strokeColor, float strokeWidth, ArrayList<PointF> points) {
         this(strokeColor, strokeWidth);
-        this.points.addAll(points);
+        this.mPoints.addAll(points);
     }
 
     RPathState(int strokeColor, float strokeWidth) {
@@ -27,7 +41,106 @@ public class RPathState {
     }
 
     RPathState() {
-        points = new ArrayList<>();
+        mPoints = new ArrayList<>();
+    }
+
+    int size() {
+        return mPoints != null ? mPoints.size() : mCompactPoints.size();
+    }
+
+    /**
+     * @return the mutable points, expanding compacted points
+     */
+    ArrayList<PointF> getPoints() {
+        if (mPoints == null) {
+            mPoints = mCompactPoints.decode();
+            mCompactPoints.release();
+            mCompactPoints = null;
+        }
+        return mPoints;
+    }
+
+    /**
+     * @return the points, must not be mutated. Compacted points are decoded into a copy and stay compacted
+     */
+    ArrayList<PointF> readPoints() {
+        return mPoints != null ? mPoints : mCompactPoints.decode();
+    }
+
+    /**
+     * @return a copy of the points that leaves compacted points compacted
+     */
+    ArrayList<PointF> copyPoints() {
+        return mPoints != null ? new ArrayList<>(mPoints) : mCompactPoints.decode();
+    }
+
+    /**
+     * @return points interleaved as `[x0, y0, x1, y1, ...]`
+     */
+    float[] toArray() {
+        return mPoints != null ? PathUtil.toArray(mPoints) : mCompactPoints.toArray();
+    }
+
+    /**
+     * @return the compacted points, null while expanded
+     */
+    @Nullable
+    CompactPoints getCompactPoints() {
+        return mCompactPoints;
+    }
+
+    void setPoints(ArrayList<PointF> points) {
+        mPoints = new ArrayList<>(points);
+        if (mCompactPoints != null) {
+            mCompactPoints.release();
+            mCompactPoints = null;
+        }
+    }
+
+    void computeBounds(RectF out) {
+        if (mPoints != null) {
+            PathUtil.computeBounds(mPoints, out);
+        } else {
+            mCompactPoints.computeBounds(out);
+        }
+    }
+
+    /**
+     * stores the points in a {@link CompactPoints}, for strokes that are no longer drawn.
+     * They are expanded again by {@link #getPoints()}
+     * @param arena see {@link CompactPoints#encode}
+     */
+    void compact(@Nullable PointArena arena) {
+        if (mPoints != null && mPoints.size() > 0) {
+            mCompactPoints = CompactPoints.encode(mPoints, arena);
+            mPoints = null;
+        }
+    }
+
+    boolean isCompacted() {
+        return mCompactPoints != null;
+    }
+
+    boolean isOffHeap() {
+        return mCompactPoints != null && mCompactPoints.isOffHeap();
+    }
+
+    /**
+     * drops the points, freeing compacted storage, once the state is discarded
+     */
+    void release() {
+        if (mCompactPoints != null) {
+            mCompactPoints.release();
+            mCompactPoints = null;
+        }
+        mPoints = new ArrayList<>();
+    }
+
+    /**
+     * retained by the points, estimated for expanded points
+     */
+    long getByteSize() {
+        return mPoints != null ? (long) mPoints.size() * CanvasMetrics.BYTES_PER_POINT : mCompactPoints.getByteSize();
     }
 
     void setDirty() {
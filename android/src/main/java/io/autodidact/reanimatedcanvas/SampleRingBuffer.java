@@ -0,0 +1,251 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.graphics.PointF;
+import android.view.Choreographer;
+
+import androidx.annotation.IntDef;
+
+import com.facebook.react.bridge.UiThreadUtil;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A bounded lock-free multi-producer/single-consumer queue of stroke samples.
+ * Samples are offered by the bridge and by reanimated procs on the UI thread, the UI thread drains them once per Choreographer frame.
+ * Producers claim a slot by CAS and publish it through the slot's sequence number, see Vyukov's bounded MPMC queue.
+ * When the buffer is full samples offered off the UI thread are dropped and reported as an `onCanvasError` event.
+ */
+class SampleRingBuffer {
+
+    private static final ConcurrentHashMap<Integer, SampleRingBuffer> sRegistry = new ConcurrentHashMap<>();
+
+    static void register(int tag, SampleRingBuffer buffer) {
+        sRegistry.put(tag, buffer);
+    }
+
+    static SampleRingBuffer get(int tag) {
+        return sRegistry.get(tag);
+    }
+
+    static void unregister(int tag) {
+        sRegistry.remove(tag);
+    }
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({
+            SampleType.ALLOC,
+            SampleType.DRAW_POINT,
+            SampleType.END_INTERACTION
+    })
+    @interface SampleType {
+        int ALLOC = RCanvasManager.Commands.ALLOC;
+        int DRAW_POINT = RCanvasManager.Commands.DRAW_POINT;
+        int END_INTERACTION = RCanvasManager.Commands.END_INTERACTION;
+    }
+
+    private static final int CAPACITY = 4096;
+    private static final int MASK = CAPACITY - 1;
+
+    private final int[] mTypes = new int[CAPACITY];
+    private final int[] mIds = new int[CAPACITY];
+    private final float[] mX = new float[CAPACITY];
+    private final float[] mY = new float[CAPACITY];
+    private final int[] mColors = new int[CAPACITY];
+
+    /**
+     * per slot, equals the position a producer may claim it at, or that position + 1 once it's published to the consumer
+     */
+    private final AtomicIntegerArray mSequences = new AtomicIntegerArray(CAPACITY);
+    /**
+     * next position to read, written by the consumer only
+     */
+    private final AtomicInteger mHead = new AtomicInteger();
+    /**
+     * next position to claim, claimed by producers by CAS
+     */
+    private final AtomicInteger mTail = new AtomicInteger();
+    private final AtomicBoolean mDrainScheduled = new AtomicBoolean(false);
+    /**
+     * samples dropped since the last drain, reported by the consumer
+     */
+    private final AtomicInteger mDropped = new AtomicInteger();
+    private volatile int mLastDroppedPathId;
+
+    private final RCanvas mCanvas;
+    private final Choreographer mChoreographer;
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mDrainScheduled.set(false);
+            drain();
+        }
+    };
+
+    /**
+     * must be created on the UI thread
+     */
+    SampleRingBuffer(RCanvas canvas) {
+        mCanvas = canvas;
+        mChoreographer = Choreographer.getInstance();
+        for (int i = 0; i < CAPACITY; i++) {
+            mSequences.set(i, i);
+        }
+    }
+
+    /**
+     * @param strokeColor ignored unless `hasColor`
+     * @param strokeWidth pass NaN to use the canvas' stroke width
+     */
+    void offerAlloc(int pathId, boolean hasColor, int strokeColor, float strokeWidth) {
+        offer(SampleType.ALLOC, pathId, hasColor ? 1 : 0, strokeWidth, strokeColor);
+    }
+
+    void offerPoint(int pathId, float x, float y) {
+        offer(SampleType.DRAW_POINT, pathId, x, y, 0);
+    }
+
+    void offerEndInteraction(int pathId) {
+        offer(SampleType.END_INTERACTION, pathId, 0, 0, 0);
+    }
+
+    private void offer(@SampleType int type, int pathId, float x, float y, int color) {
+        int tail = claim();
+        if (tail == -1 && UiThreadUtil.isOnUiThread()) {
+            // the UI thread is the consumer, making room can't block
+            drain();
+            tail = claim();
+        }
+        if (tail == -1) {
+            mLastDroppedPathId = pathId;
+            mDropped.incrementAndGet();
+            scheduleDrain();
+            return;
+        }
+        int slot = tail & MASK;
+        mTypes[slot] = type;
+        mIds[slot] = pathId;
+        mX[slot] = x;
+        mY[slot] = y;
+        mColors[slot] = color;
+        // publishes the slot to the consumer
+        mSequences.lazySet(slot, tail + 1);
+        scheduleDrain();
+    }
+
+    /**
+     * @return the claimed position or -1 if the buffer is full
+     */
+    private int claim() {
+        while (true) {
+            int tail = mTail.get();
+            int diff = mSequences.get(tail & MASK) - tail;
+            if (diff == 0) {
+                if (mTail.compareAndSet(tail, tail + 1)) {
+                    return tail;
+                }
+            } else if (diff < 0) {
+                // the slot's previous sample wasn't drained yet
+                return -1;
+            }
+            // else another producer claimed the position, retry with the new tail
+        }
+    }
+
+    private void scheduleDrain() {
+        if (mDrainScheduled.compareAndSet(false, true)) {
+            mChoreographer.postFrameCallback(mFrameCallback);
+        }
+    }
+
+    int size() {
+        return mTail.get() - mHead.get();
+    }
+
+    /**
+     * applies all published samples to the canvas, UI thread only
+     * while a background update is in flight the samples are deferred along with the commands, preserving their order
+     */
+    void drain() {
+        UiThreadUtil.assertOnUiThread();
+        reportDropped();
+        int head = mHead.get();
+        final RCanvasHandler handler = mCanvas instanceof RCanvasHandler ? (RCanvasHandler) mCanvas : null;
+        boolean defer = handler != null && handler.isUpdatePending();
+
+        while (true) {
+            int slot = head & MASK;
+            if (mSequences.get(slot) != head + 1) {
+                // empty, or the next slot was claimed but isn't published yet, it schedules another drain once it is
+                break;
+            }
+            final int type = mTypes[slot];
+            final int pathId = mIds[slot];
+            final float x = mX[slot];
+            final float y = mY[slot];
+            final int color = mColors[slot];
+            // frees the slot for the producer at the next lap
+            mSequences.lazySet(slot, head + CAPACITY);
+            mHead.lazySet(++head);
+            if (defer) {
+                handler.deferUntilUpdated(new Runnable() {
+                    @Override
+                    public void run() {
+                        apply(type, pathId, x, y, color);
+                    }
+                });
+            } else {
+                apply(type, pathId, x, y, color);
+            }
+        }
+    }
+
+    private void reportDropped() {
+        int dropped = mDropped.getAndSet(0);
+        if (dropped == 0) return;
+        IllegalStateException e = new IllegalStateException(String.format(Locale.ENGLISH,
+                "%s sample buffer is full, dropped %d samples", RCanvasManager.TAG, dropped));
+        if (mCanvas instanceof RCanvasHandler) {
+            ((RCanvasHandler) mCanvas).getEventDispatcher().emitError(RCanvasEventDispatcher.ErrorSource.SAMPLE, mLastDroppedPathId, e);
+        }
+    }
+
+    /**
+     * a failing sample is reported as an `onCanvasError` event instead of throwing from the frame callback
+     */
+    private void apply(@SampleType int type, int pathId, float x, float y, int color) {
+        try {
+            switch (type) {
+                case SampleType.ALLOC:
+                    mCanvas.init(
+                            pathId,
+                            x != 0 ? color : null,
+                            Float.isNaN(y) ? null : y,
+                            null
+                    );
+                    break;
+                case SampleType.DRAW_POINT:
+                    mCanvas.drawPoint(pathId, new PointF(x, y));
+                    break;
+                case SampleType.END_INTERACTION:
+                    mCanvas.endInteraction(pathId);
+                    break;
+            }
+        } catch (Throwable e) {
+            if (mCanvas instanceof RCanvasHandler) {
+                ((RCanvasHandler) mCanvas).getEventDispatcher().emitError(RCanvasEventDispatcher.ErrorSource.SAMPLE, pathId, e);
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    void release() {
+        mChoreographer.removeFrameCallback(mFrameCallback);
+    }
+}
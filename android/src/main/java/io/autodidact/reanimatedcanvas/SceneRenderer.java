@@ -0,0 +1,21 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.graphics.Canvas;
+
+/**
+ * Draws {@link SceneSnapshot} strokes onto an arbitrary {@link Canvas}, off the UI thread.
+ * Mirrors the way each {@link RPath} draws itself.
+ */
+class SceneRenderer {
+
+    /**
+     * draws strokes in order, erasers clear whatever was drawn beneath them
+     * strokes outside the canvas' clip are skipped
+     */
+    static void draw(Canvas canvas, SceneSnapshot.StrokeSnapshot[] strokes) {
+        for (SceneSnapshot.StrokeSnapshot stroke : strokes) {
+            if (stroke.getPointCount() == 0 || canvas.quickReject(stroke.bounds, Canvas.EdgeType.AA)) continue;
+            canvas.drawPath(stroke.obtainPath(), stroke.style.paint);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.annotation.TargetApi;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.graphics.Path;
+import android.graphics.PointF;
+import android.graphics.RectF;
+import android.util.SparseIntArray;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.JSApplicationIllegalArgumentException;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.uimanager.PixelUtil;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import static io.autodidact.reanimatedcanvas.RCanvasManager.TAG;
+
+/**
+ * An immutable copy of a canvas' strokes, obtained by {@link RCanvas} on the UI thread
+ * and read by {@link RCanvasModule} on a background thread.
+ */
+class SceneSnapshot {
+
+    /**
+     * references the points of a compacted stroke and decodes them on demand, copies the points of a live one.
+     * Paths are rebuilt from the points when needed rather than retained
+     */
+    static class StrokeSnapshot {
+        final int pathId;
+        final int strokeColor;
+        final float strokeWidth;
+        final StrokeStyle style;
+        /**
+         * interleaved as `[x0, y0, x1, y1, ...]`, null if the points are compacted
+         */
+        @Nullable private final float[] mPoints;
+        @Nullable private final CompactPoints mCompactPoints;
+        private final int mPointCount;
+        final RectF hitSlop;
+        /**
+         * bounds of the drawn stroke
+         */
+        final RectF bounds;
+        /**
+         * bounds beyond which {@link #isPointOnPath} can't hit
+         */
+        final RectF hitBounds;
+        /**
+         * see {@link VersionLog}
+         */
+        final long createdVersion;
+        final long version;
+
+        StrokeSnapshot(RPath path) {
+            RPathState state = path.getState();
+            pathId = path.getPathId();
+            strokeColor = state.strokeColor;
+            strokeWidth = state.strokeWidth;
+            style = path.getStyle();
+            mCompactPoints = state.isCompacted() ? state.getCompactPoints().share() : null;
+            mPoints = mCompactPoints == null ? state.toArray() : null;
+            mPointCount = state.size();
+            hitSlop = path.getHitSlop();
+            bounds = path.getStrokeBounds();
+            hitBounds = path.getHitBounds();
+            createdVersion = path.getCreatedVersion();
+            version = path.getVersion();
+        }
+
+        int getPointCount() {
+            return mPointCount;
+        }
+
+        /**
+         * @return points interleaved as `[x0, y0, x1, y1, ...]`, decoded on every call if compacted, must not be mutated
+         */
+        float[] getPoints() {
+            return mPoints != null ? mPoints : mCompactPoints.toArray();
+        }
+
+        /**
+         * @param to exclusive
+         */
+        float[] getPoints(int from, int to) {
+            return mPoints != null ? Arrays.copyOfRange(mPoints, from * 2, to * 2) : mCompactPoints.toArray(from, to);
+        }
+
+        @Nullable
+        CompactPoints getCompactPoints() {
+            return mCompactPoints;
+        }
+
+        /**
+         * retained by the points, shared with the path if compacted
+         */
+        long getByteSize() {
+            return mPoints != null ? (long) mPoints.length * 4 : mCompactPoints.getByteSize();
+        }
+
+        /**
+         * builds the stroke's path for rendering, see {@link PathUtil#obtain}
+         */
+        Path obtainPath() {
+            return PathUtil.obtain(getPoints());
+        }
+
+        boolean isEraser() {
+            return strokeColor == Color.TRANSPARENT;
+        }
+
+        @TargetApi(19)
+        boolean isPointOnPath(PointF point) {
+            return mPointCount > 0 && Utility.contains(hitBounds, point) && PathUtil.isPointOnPath(getPoints(), point, hitSlop);
+        }
+
+        WritableMap toWritableMap(boolean includePoints) {
+            WritableMap out = Arguments.createMap();
+            out.putInt("id", pathId);
+            out.putString("strokeColor", Utility.parseColorForJS(strokeColor));
+            out.putDouble("strokeWidth", PixelUtil.toDIPFromPixel(strokeWidth));
+
+            if (includePoints) {
+                out.putArray("points", toWritablePoints(0, getPointCount()));
+            }
+
+            return out;
+        }
+
+        /**
+         * @param maxPoints pass a negative value to include all points from `fromPointIndex`
+         */
+        WritableMap toWritableMap(int fromPointIndex, int maxPoints) {
+            int pointCount = getPointCount();
+            int from = Math.max(0, Math.min(fromPointIndex, pointCount));
+            int to = maxPoints < 0 ? pointCount : (int) Math.min((long) from + maxPoints, pointCount);
+            WritableMap out = toWritableMap(false);
+            out.putInt("pointCount", pointCount);
+            out.putInt("fromPointIndex", from);
+            out.putInt("nextPointIndex", to < pointCount ? to : -1);
+            out.putArray("points", toWritablePoints(from, to));
+            return out;
+        }
+
+        private WritableArray toWritablePoints(int from, int to) {
+            float[] points = getPoints(from, to);
+            WritableArray arr = Arguments.createArray();
+            for (int i = 0; i < to - from; i++) {
+                arr.pushMap(Utility.toWritablePoint(new PointF(points[i * 2], points[i * 2 + 1])));
+            }
+            return arr;
+        }
+    }
+
+    private final StrokeSnapshot[] mStrokes;
+    /**
+     * pathId to index in {@link #mStrokes}, built with the snapshot so that lookups off the UI thread are O(1)
+     */
+    private final SparseIntArray mIndices;
+    final int width;
+    final int height;
+    private final Matrix mInverseViewport;
+    /**
+     * the live metrics of the canvas, thread safe
+     */
+    final CanvasMetrics metrics;
+    final long version;
+    private final VersionLog.Tombstones mTombstones;
+
+    SceneSnapshot(StrokeSnapshot[] strokes, int width, int height, Matrix inverseViewport, CanvasMetrics metrics,
+                  long version, VersionLog.Tombstones tombstones) {
+        mStrokes = strokes;
+        mIndices = new SparseIntArray(strokes.length);
+        for (int i = 0; i < strokes.length; i++) {
+            mIndices.put(strokes[i].pathId, i);
+        }
+        this.width = width;
+        this.height = height;
+        mInverseViewport = new Matrix(inverseViewport);
+        this.metrics = metrics;
+        this.version = version;
+        mTombstones = tombstones;
+    }
+
+    /**
+     * mirrors {@link RCanvas#toDocumentPoint}
+     */
+    PointF toDocumentPoint(PointF point) {
+        if (mInverseViewport.isIdentity()) return point;
+        float[] out = { point.x, point.y };
+        mInverseViewport.mapPoints(out);
+        return new PointF(out[0], out[1]);
+    }
+
+    int size() {
+        return mStrokes.length;
+    }
+
+    int getIndex(int pathId) {
+        return mIndices.get(pathId, -1);
+    }
+
+    /**
+     * @param ids pass null to select all strokes
+     */
+    StrokeSnapshot[] select(@Nullable ReadableArray ids) {
+        if (ids == null) {
+            return mStrokes.clone();
+        }
+        StrokeSnapshot[] out = new StrokeSnapshot[ids.size()];
+        for (int i = 0; i < out.length; i++) {
+            out[i] = getStroke(ids.getInt(i));
+        }
+        return out;
+    }
+
+    StrokeSnapshot getStroke(int pathId) {
+        return mStrokes[requireIndex(pathId)];
+    }
+
+    private int requireIndex(int pathId) {
+        int index = getIndex(pathId);
+        if (index == -1) {
+            throw new JSApplicationIllegalArgumentException(String.format(Locale.ENGLISH, "%s failed to find path#%d", TAG, pathId));
+        }
+        return index;
+    }
+
+    /**
+     * `{ version, reset, added, changed, removed }`, strokes added, changed and removed after `since`.
+     * Strokes carry their points, removed strokes are listed by id.
+     * `reset` is set if `since` can't be diffed, because its tombstones were dropped or it belongs to another canvas,
+     * in which case every stroke is listed as added and the caller should replace its copy of the scene
+     */
+    WritableMap getChangesSince(long since) {
+        boolean reset = since < mTombstones.floor || since > version;
+        WritableArray added = Arguments.createArray();
+        WritableArray changed = Arguments.createArray();
+        WritableArray removed = Arguments.createArray();
+        for (StrokeSnapshot stroke: mStrokes) {
+            if (reset || stroke.createdVersion > since) {
+                added.pushMap(stroke.toWritableMap(true));
+            } else if (stroke.version > since) {
+                changed.pushMap(stroke.toWritableMap(true));
+            }
+        }
+        if (!reset) {
+            long[] versions = mTombstones.versions;
+            int i = Arrays.binarySearch(versions, since + 1);
+            for (i = i < 0 ? -i - 1 : i; i < versions.length; i++) {
+                removed.pushInt(mTombstones.pathIds[i]);
+            }
+        }
+        WritableMap out = Arguments.createMap();
+        out.putDouble("version", version);
+        out.putBoolean("reset", reset);
+        out.putArray("added", added);
+        out.putArray("changed", changed);
+        out.putArray("removed", removed);
+        return out;
+    }
+
+    /**
+     * mirrors {@link IntersectionHelper#isTransparent(PointF, int)}
+     */
+    @TargetApi(19)
+    private boolean isTransparent(PointF point, int index) {
+        for (int i = index; i < mStrokes.length; i++) {
+            StrokeSnapshot stroke = mStrokes[i];
+            if (stroke.isEraser() && stroke.isPointOnPath(point)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @TargetApi(19)
+    boolean isPointOnPath(PointF point, int pathId) {
+        long start = CanvasMetrics.now();
+        int index = requireIndex(pathId);
+        boolean result = mStrokes[index].isPointOnPath(point) && !isTransparent(point, index);
+        metrics.onHitTest(start);
+        return result;
+    }
+
+    @TargetApi(19)
+    WritableArray isPointOnPath(PointF point) {
+        long start = CanvasMetrics.now();
+        WritableArray array = Arguments.createArray();
+        for (int i = 0; i < mStrokes.length; i++) {
+            if (mStrokes[i].isPointOnPath(point) && !isTransparent(point, i)) {
+                array.pushInt(mStrokes[i].pathId);
+            }
+        }
+        metrics.onHitTest(start);
+        return array;
+    }
+}
@@ -0,0 +1,114 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * A uniform grid over document space, mapping cells to the paths whose stroke bounds overlap them.
+ * Paths are re-indexed only when their bounds cross into other cells, so a growing stroke costs O(1) per point.
+ * Confined to the UI thread.
+ */
+class SpatialIndex {
+
+    private static final float CELL_SIZE = 256;
+
+    private final HashMap<Long, ArrayList<RPath>> mCells = new HashMap<>();
+    private final HashMap<RPath, Rect> mRanges = new HashMap<>();
+    private final RectF mBounds = new RectF();
+    private final Comparator<RPath> mOrder;
+
+    /**
+     * @param order the z-order of the paths, query results are sorted by it
+     */
+    SpatialIndex(Comparator<RPath> order) {
+        mOrder = order;
+    }
+
+    void update(RPath path) {
+        Rect range = path.getState().size() > 0 ? getCellRange(path.getStrokeBounds(mBounds)) : null;
+        Rect current = mRanges.get(path);
+        if (range == null ? current == null : range.equals(current)) return;
+        if (current != null) {
+            removeFromCells(path, current);
+        }
+        if (range != null) {
+            mRanges.put(path, range);
+            for (int x = range.left; x <= range.right; x++) {
+                for (int y = range.top; y <= range.bottom; y++) {
+                    ArrayList<RPath> cell = mCells.get(key(x, y));
+                    if (cell == null) {
+                        cell = new ArrayList<>();
+                        mCells.put(key(x, y), cell);
+                    }
+                    cell.add(path);
+                }
+            }
+        } else {
+            mRanges.remove(path);
+        }
+    }
+
+    void remove(RPath path) {
+        Rect current = mRanges.remove(path);
+        if (current != null) {
+            removeFromCells(path, current);
+        }
+    }
+
+    void clear() {
+        mCells.clear();
+        mRanges.clear();
+    }
+
+    /**
+     * @return paths whose cells overlap `rect`, a superset of the paths whose bounds intersect it, bottom to top
+     */
+    ArrayList<RPath> query(RectF rect) {
+        HashSet<RPath> candidates = new HashSet<>();
+        Rect range = getCellRange(rect);
+        for (int x = range.left; x <= range.right; x++) {
+            for (int y = range.top; y <= range.bottom; y++) {
+                ArrayList<RPath> cell = mCells.get(key(x, y));
+                if (cell != null) {
+                    candidates.addAll(cell);
+                }
+            }
+        }
+        ArrayList<RPath> out = new ArrayList<>(candidates);
+        Collections.sort(out, mOrder);
+        return out;
+    }
+
+    private void removeFromCells(RPath path, Rect range) {
+        for (int x = range.left; x <= range.right; x++) {
+            for (int y = range.top; y <= range.bottom; y++) {
+                ArrayList<RPath> cell = mCells.get(key(x, y));
+                if (cell != null) {
+                    cell.remove(path);
+                    if (cell.isEmpty()) {
+                        mCells.remove(key(x, y));
+                    }
+                }
+            }
+        }
+    }
+
+    private static Rect getCellRange(RectF rect) {
+        return new Rect(
+                (int) Math.floor(rect.left / CELL_SIZE),
+                (int) Math.floor(rect.top / CELL_SIZE),
+                (int) Math.floor(rect.right / CELL_SIZE),
+                (int) Math.floor(rect.bottom / CELL_SIZE)
+        );
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+}
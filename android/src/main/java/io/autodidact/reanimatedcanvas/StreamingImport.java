@@ -0,0 +1,188 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.graphics.Path;
+import android.os.SystemClock;
+import android.view.Choreographer;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.UiThreadUtil;
+
+import java.util.ArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Adds strokes to a canvas progressively while they are still being loaded.
+ * Producers decode strokes and build their paths off the UI thread and {@link #offer} them from any thread.
+ * The UI thread adds as many strokes as fit in {@link #FRAME_BUDGET_MS} each frame,
+ * so the first strokes show up a frame after they are offered and loading never drops frames.
+ * At most {@link #CAPACITY} strokes are queued, {@link #offer} blocks the producer until there is room.
+ * While the canvas has a background update pending strokes are held back, keeping them ordered after earlier commands.
+ * A failed producer {@link #fail}s the import, strokes added so far are kept and the rest are dropped.
+ */
+class StreamingImport {
+
+    interface Listener {
+        /**
+         * invoked on the UI thread once the import is closed and every offered stroke was added
+         */
+        void onComplete(int pathCount, int pointCount, long duration);
+    }
+
+    private static final long FRAME_BUDGET_MS = 6;
+    private static final int CAPACITY = 1024;
+    /**
+     * how often a blocked producer checks whether the import failed
+     */
+    private static final long OFFER_POLL_MS = 100;
+
+    private static class Entry {
+        final StrokeRecord record;
+        final Path path;
+
+        Entry(StrokeRecord record, Path path) {
+            this.record = record;
+            this.path = path;
+        }
+    }
+
+    private final int mImportId;
+    private final RCanvasHandler mCanvas;
+    private volatile Listener mListener;
+    private final LinkedBlockingQueue<Entry> mQueue = new LinkedBlockingQueue<>(CAPACITY);
+    private final AtomicBoolean mScheduled = new AtomicBoolean(false);
+    private final Choreographer mChoreographer;
+    private volatile boolean mClosed = false;
+    private volatile @Nullable Throwable mError;
+    private boolean mDone = false;
+    private boolean mDeferred = false;
+    private final long mStart = SystemClock.uptimeMillis();
+    private int mPathCount = 0;
+    private int mPointCount = 0;
+
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mScheduled.set(false);
+            run();
+        }
+    };
+    private final Runnable mDeferredDrain = new Runnable() {
+        @Override
+        public void run() {
+            mDeferred = false;
+            StreamingImport.this.run();
+        }
+    };
+
+    /**
+     * must be created on the UI thread
+     */
+    StreamingImport(int importId, RCanvasHandler canvas) {
+        mImportId = importId;
+        mCanvas = canvas;
+        mChoreographer = Choreographer.getInstance();
+    }
+
+    int getImportId() {
+        return mImportId;
+    }
+
+    /**
+     * blocks while {@link #CAPACITY} strokes are queued, the stroke is dropped if the import fails meanwhile
+     * @param path prebuilt from `record.points`
+     */
+    void offer(StrokeRecord record, Path path) throws InterruptedException {
+        Entry entry = new Entry(record, path);
+        while (!mQueue.offer(entry, OFFER_POLL_MS, TimeUnit.MILLISECONDS)) {
+            if (mError != null) return;
+            schedule();
+        }
+        schedule();
+    }
+
+    /**
+     * signals no more strokes will be offered
+     */
+    void close(Listener listener) {
+        mListener = listener;
+        mClosed = true;
+        schedule();
+    }
+
+    /**
+     * closes the import with an error, reported by the final `onImportProgress` event
+     * the listener, if any, isn't invoked, callable from any thread
+     */
+    void fail(Throwable e) {
+        if (mError == null) {
+            mError = e;
+        }
+        mClosed = true;
+        schedule();
+    }
+
+    private void schedule() {
+        if (mScheduled.compareAndSet(false, true)) {
+            mChoreographer.postFrameCallback(mFrameCallback);
+        }
+    }
+
+    /**
+     * a failing frame fails the import instead of throwing from the frame callback
+     */
+    private void run() {
+        try {
+            drain();
+        } catch (Throwable e) {
+            fail(e);
+        }
+    }
+
+    private void drain() {
+        UiThreadUtil.assertOnUiThread();
+        if (mDone || mDeferred) return;
+        Throwable error = mError;
+        if (error != null) {
+            mDone = true;
+            mQueue.clear();
+            mCanvas.getEventDispatcher().emitImportProgress(mImportId, mPathCount, mPointCount,
+                    SystemClock.uptimeMillis() - mStart, true, error);
+            return;
+        }
+        if (mCanvas.isUpdatePending()) {
+            mDeferred = true;
+            mCanvas.deferUntilUpdated(mDeferredDrain);
+            return;
+        }
+        boolean closed = mClosed;
+        long deadline = SystemClock.uptimeMillis() + FRAME_BUDGET_MS;
+        ArrayList<RPath> added = new ArrayList<>();
+        ArrayList<RPath> changed = new ArrayList<>();
+        Entry entry;
+
+        while (SystemClock.uptimeMillis() < deadline && (entry = mQueue.poll()) != null) {
+            mCanvas.applyStroke(entry.record, entry.path, added, changed);
+            mPathCount++;
+            mPointCount += entry.record.points.size();
+        }
+
+        if (added.size() > 0 || changed.size() > 0) {
+            mCanvas.postInvalidateOnAnimation();
+            mCanvas.emitChange(added, changed);
+        }
+
+        boolean done = closed && mQueue.isEmpty();
+        long duration = SystemClock.uptimeMillis() - mStart;
+        mCanvas.getEventDispatcher().emitImportProgress(mImportId, mPathCount, mPointCount, duration, done, null);
+
+        if (done) {
+            mDone = true;
+            mListener.onComplete(mPathCount, mPointCount, duration);
+        } else if (!mQueue.isEmpty()) {
+            schedule();
+        }
+    }
+}
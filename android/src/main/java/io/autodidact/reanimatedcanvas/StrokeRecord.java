@@ -0,0 +1,23 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.graphics.PointF;
+
+import java.util.ArrayList;
+
+/**
+ * A decoded stroke, independent of any view.
+ * Used to move strokes in and out of the canvas in bulk, off the UI thread.
+ */
+class StrokeRecord {
+    final int pathId;
+    final int strokeColor;
+    final float strokeWidth;
+    final ArrayList<PointF> points;
+
+    StrokeRecord(int pathId, int strokeColor, float strokeWidth, ArrayList<PointF> points) {
+        this.pathId = pathId;
+        this.strokeColor = strokeColor;
+        this.strokeWidth = strokeWidth;
+        this.points = points;
+    }
+}
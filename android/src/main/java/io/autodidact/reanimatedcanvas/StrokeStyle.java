@@ -0,0 +1,116 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An interned, immutable stroke style shared by all paths and canvases, and by background renderers.
+ * {@link #paint} must never be mutated, copy it instead.
+ * Erasers are strokes colored {@link Color#TRANSPARENT}, so erase is derived from the color.
+ */
+class StrokeStyle {
+
+    /**
+     * animated stroke widths may produce an unbounded number of styles, past this they are no longer interned
+     */
+    private static final int MAX_STYLES = 1024;
+    private static final PorterDuffXfermode SRC_OVER = new PorterDuffXfermode(PorterDuff.Mode.SRC_OVER);
+    private static final PorterDuffXfermode CLEAR = new PorterDuffXfermode(PorterDuff.Mode.CLEAR);
+    private static final ConcurrentHashMap<Key, StrokeStyle> sStyles = new ConcurrentHashMap<>();
+    private static final AtomicInteger sNextId = new AtomicInteger(1);
+
+    /**
+     * 0 for styles that were not interned
+     */
+    final int id;
+    final int strokeColor;
+    final float strokeWidth;
+    final Paint.Cap cap;
+    final Paint.Join join;
+    final Paint paint;
+
+    private StrokeStyle(int id, Key key) {
+        this.id = id;
+        strokeColor = key.strokeColor;
+        strokeWidth = key.strokeWidth;
+        cap = key.cap;
+        join = key.join;
+        paint = new Paint();
+        paint.setColor(strokeColor);
+        paint.setStrokeWidth(strokeWidth);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeCap(cap);
+        paint.setStrokeJoin(join);
+        paint.setAntiAlias(true);
+        paint.setXfermode(isEraser() ? CLEAR : SRC_OVER);
+    }
+
+    static StrokeStyle obtain(int strokeColor, float strokeWidth) {
+        return obtain(strokeColor, strokeWidth, Paint.Cap.ROUND, Paint.Join.ROUND);
+    }
+
+    static StrokeStyle obtain(int strokeColor, float strokeWidth, Paint.Cap cap, Paint.Join join) {
+        Key key = new Key(strokeColor, strokeWidth, cap, join);
+        StrokeStyle style = sStyles.get(key);
+        if (style != null) {
+            return style;
+        }
+        if (sStyles.size() >= MAX_STYLES) {
+            return new StrokeStyle(0, key);
+        }
+        style = new StrokeStyle(sNextId.getAndIncrement(), key);
+        StrokeStyle current = sStyles.putIfAbsent(key, style);
+        return current != null ? current : style;
+    }
+
+    static int size() {
+        return sStyles.size();
+    }
+
+    boolean isEraser() {
+        return strokeColor == Color.TRANSPARENT;
+    }
+
+    boolean matches(int strokeColor, float strokeWidth) {
+        return this.strokeColor == strokeColor && this.strokeWidth == strokeWidth;
+    }
+
+    private static class Key {
+        final int strokeColor;
+        final float strokeWidth;
+        final Paint.Cap cap;
+        final Paint.Join join;
+
+        Key(int strokeColor, float strokeWidth, Paint.Cap cap, Paint.Join join) {
+            this.strokeColor = strokeColor;
+            this.strokeWidth = strokeWidth;
+            this.cap = cap;
+            this.join = join;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return strokeColor == key.strokeColor &&
+                    Float.compare(strokeWidth, key.strokeWidth) == 0 &&
+                    cap == key.cap &&
+                    join == key.join;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = strokeColor;
+            result = 31 * result + Float.floatToIntBits(strokeWidth);
+            result = 31 * result + cap.hashCode();
+            result = 31 * result + join.hashCode();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.graphics.Color;
+import android.graphics.RectF;
+
+import com.facebook.react.uimanager.PixelUtil;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Streams {@link SceneSnapshot} strokes as SVG, emitting the same segments {@link PathUtil#obtain} builds.
+ * Output is byte deterministic: coordinates are in DIP, rounded to 2 decimals and formatted without locale.
+ *
+ * Erasers only clear strokes drawn before them, so each eraser becomes a mask applied to a group of all preceding strokes.
+ * All groups are opened upfront, innermost first eraser, and each is closed when its eraser is reached,
+ * so the document is written in a single pass.
+ * Strokes entirely outside the viewBox are omitted.
+ */
+class SvgExporter {
+
+    private static final int SEGMENT_CHUNK = 256;
+
+    private final Writer mWriter;
+    private final StringBuilder mBuilder = new StringBuilder(256);
+    private final QuadSmoothing.Sink mSegmentWriter = new QuadSmoothing.Sink() {
+        @Override
+        public void moveTo(float x, float y) {
+            mBuilder.append('M');
+            appendPoint(x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            mBuilder.append('L');
+            appendPoint(x, y);
+        }
+
+        @Override
+        public void quadTo(float x1, float y1, float x2, float y2) {
+            mBuilder.append('Q');
+            appendPoint(x1, y1);
+            mBuilder.append(' ');
+            appendPoint(x2, y2);
+        }
+    };
+
+    SvgExporter(Writer writer) {
+        mWriter = writer;
+    }
+
+    void export(SceneSnapshot snapshot) throws IOException {
+        SceneSnapshot.StrokeSnapshot[] strokes = snapshot.select(null);
+        float width = PixelUtil.toDIPFromPixel(snapshot.width);
+        float height = PixelUtil.toDIPFromPixel(snapshot.height);
+        RectF viewBox = new RectF(0, 0, snapshot.width, snapshot.height);
+        int eraserCount = 0;
+        for (SceneSnapshot.StrokeSnapshot stroke : strokes) {
+            if (stroke.isEraser() && isVisible(stroke, viewBox)) {
+                eraserCount++;
+            }
+        }
+
+        mBuilder.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        mBuilder.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"");
+        appendNumber(width);
+        mBuilder.append("\" height=\"");
+        appendNumber(height);
+        mBuilder.append("\" viewBox=\"0 0 ");
+        appendNumber(width);
+        mBuilder.append(' ');
+        appendNumber(height);
+        mBuilder.append("\">\n");
+        for (int i = eraserCount; i > 0; i--) {
+            mBuilder.append("<g mask=\"url(#eraser").append(i).append(")\">\n");
+        }
+        flush();
+
+        int eraserIndex = 0;
+        for (SceneSnapshot.StrokeSnapshot stroke : strokes) {
+            if (!isVisible(stroke, viewBox)) continue;
+            if (stroke.isEraser()) {
+                eraserIndex++;
+                mBuilder.append("</g>\n<mask id=\"eraser").append(eraserIndex).append("\" maskUnits=\"userSpaceOnUse\" x=\"0\" y=\"0\" width=\"");
+                appendNumber(width);
+                mBuilder.append("\" height=\"");
+                appendNumber(height);
+                mBuilder.append("\">\n<rect x=\"0\" y=\"0\" width=\"");
+                appendNumber(width);
+                mBuilder.append("\" height=\"");
+                appendNumber(height);
+                mBuilder.append("\" fill=\"#ffffff\"/>\n");
+                appendPath(stroke, Color.BLACK);
+                mBuilder.append("</mask>\n");
+            } else {
+                appendPath(stroke, stroke.strokeColor);
+            }
+            flush();
+        }
+
+        mBuilder.append("</svg>\n");
+        flush();
+        mWriter.flush();
+    }
+
+    private static boolean isVisible(SceneSnapshot.StrokeSnapshot stroke, RectF viewBox) {
+        return stroke.getPointCount() > 0 && RectF.intersects(stroke.bounds, viewBox);
+    }
+
+    private void appendPath(SceneSnapshot.StrokeSnapshot stroke, int color) throws IOException {
+        mBuilder.append("<path fill=\"none\" stroke=\"");
+        mBuilder.append(String.format(Locale.ENGLISH, "#%06x", color & 0xffffff));
+        mBuilder.append('"');
+        int alpha = Color.alpha(color);
+        if (alpha != 255) {
+            mBuilder.append(" stroke-opacity=\"");
+            appendNumber(alpha / 255f);
+            mBuilder.append('"');
+        }
+        mBuilder.append(" stroke-width=\"");
+        appendNumber(PixelUtil.toDIPFromPixel(stroke.strokeWidth));
+        mBuilder.append("\" stroke-linecap=\"round\" stroke-linejoin=\"round\" d=\"");
+        appendSegments(stroke.getPoints());
+        mBuilder.append("\"/>\n");
+    }
+
+    /**
+     * emits the segments {@link PathUtil#obtain} builds, flushing in chunks of {@link #SEGMENT_CHUNK} points
+     */
+    private void appendSegments(float[] points) throws IOException {
+        int count = points.length / 2;
+        for (int from = 0; from < count; from += SEGMENT_CHUNK) {
+            QuadSmoothing.emit(points, count, from, Math.min(from + SEGMENT_CHUNK, count), mSegmentWriter);
+            flush();
+        }
+    }
+
+    private void appendPoint(float x, float y) {
+        appendNumber(PixelUtil.toDIPFromPixel(x));
+        mBuilder.append(',');
+        appendNumber(PixelUtil.toDIPFromPixel(y));
+    }
+
+    /**
+     * locale independent, at most 2 decimals, no trailing zeros
+     */
+    private void appendNumber(float value) {
+        long hundredths = Math.round(value * 100.0);
+        if (hundredths < 0) {
+            mBuilder.append('-');
+            hundredths = -hundredths;
+        }
+        mBuilder.append(hundredths / 100);
+        long fraction = hundredths % 100;
+        if (fraction != 0) {
+            mBuilder.append('.');
+            if (fraction < 10) {
+                mBuilder.append('0').append(fraction);
+            } else if (fraction % 10 == 0) {
+                mBuilder.append(fraction / 10);
+            } else {
+                mBuilder.append(fraction);
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        mWriter.append(mBuilder);
+        mBuilder.setLength(0);
+    }
+}
@@ -0,0 +1,353 @@
+package io.autodidact.reanimatedcanvas;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Records the commands a canvas receives so drawing sessions can be replayed by {@link TraceReplay}.
+ * Trace format, big endian:
+ * <pre>
+ * magic          "RCTR"
+ * u8             version
+ * records until EOF
+ *   u8             op, a {@link RCanvasManager.Commands} value or {@link #OP_SAVE}, {@link #OP_RESTORE}
+ *   varint         µs since the previous record
+ *   value          the command's args, the save count for {@link #OP_RESTORE}, null for {@link #OP_SAVE}
+ * value
+ *   u8             type
+ *   ...            f64 for numbers, varint length and utf-8 bytes for strings,
+ *                  varint size and values for arrays, varint size and (string, value) pairs for maps
+ * </pre>
+ * Encoding is confined to the UI thread, encoded chunks are appended to the file on a dedicated writer thread.
+ */
+class TraceRecorder {
+
+    interface Listener {
+        void onComplete(File file, int recordCount, long bytes, long duration);
+        void onError(Throwable e);
+    }
+
+    private static final byte[] MAGIC = { 'R', 'C', 'T', 'R' };
+    static final int VERSION = 1;
+    static final int OP_SAVE = 16;
+    static final int OP_RESTORE = 17;
+
+    private static final int TYPE_NULL = 0;
+    private static final int TYPE_FALSE = 1;
+    private static final int TYPE_TRUE = 2;
+    private static final int TYPE_NUMBER = 3;
+    private static final int TYPE_STRING = 4;
+    private static final int TYPE_ARRAY = 5;
+    private static final int TYPE_MAP = 6;
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    /**
+     * shared by all recorders so chunks of a trace are appended in order
+     */
+    private static final ExecutorService sWriter = Executors.newSingleThreadExecutor();
+
+    private final File mFile;
+    private final FileOutputStream mStream;
+    private final ByteArrayOutputStream mBuffer = new ByteArrayOutputStream(CHUNK_SIZE);
+    private final DataOutputStream mOut = new DataOutputStream(mBuffer);
+    private final long mStart = System.nanoTime();
+    private long mLastRecord = mStart;
+    private int mRecordCount = 0;
+    private volatile long mBytes = 0;
+    private volatile IOException mError;
+
+    TraceRecorder(File file) throws IOException {
+        mFile = file;
+        mStream = new FileOutputStream(file);
+        mOut.write(MAGIC);
+        mOut.writeByte(VERSION);
+    }
+
+    File getFile() {
+        return mFile;
+    }
+
+    void onCommand(@RCanvasManager.Commands int command, @Nullable ReadableArray args) {
+        try {
+            beginRecord(command);
+            writeValue(mOut, args);
+            endRecord();
+        } catch (IOException e) {
+            mError = e;
+        }
+    }
+
+    void onSave() {
+        try {
+            beginRecord(OP_SAVE);
+            mOut.writeByte(TYPE_NULL);
+            endRecord();
+        } catch (IOException e) {
+            mError = e;
+        }
+    }
+
+    void onRestore(int saveCount) {
+        try {
+            beginRecord(OP_RESTORE);
+            mOut.writeByte(TYPE_NUMBER);
+            mOut.writeDouble(saveCount);
+            endRecord();
+        } catch (IOException e) {
+            mError = e;
+        }
+    }
+
+    private void beginRecord(int op) throws IOException {
+        long now = System.nanoTime();
+        mOut.writeByte(op);
+        writeVarint(mOut, (now - mLastRecord) / 1000);
+        mLastRecord = now;
+    }
+
+    private void endRecord() {
+        mRecordCount++;
+        if (mBuffer.size() >= CHUNK_SIZE) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        final byte[] chunk = mBuffer.toByteArray();
+        mBuffer.reset();
+        sWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    mStream.write(chunk);
+                    mBytes += chunk.length;
+                } catch (IOException e) {
+                    mError = e;
+                }
+            }
+        });
+    }
+
+    /**
+     * flushes and closes the trace, `listener` is invoked on the writer thread
+     */
+    void stop(@Nullable final Listener listener) {
+        flush();
+        final int recordCount = mRecordCount;
+        final long duration = (System.nanoTime() - mStart) / 1000000;
+        sWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    mStream.close();
+                } catch (IOException e) {
+                    if (mError == null) mError = e;
+                }
+                if (listener == null) {
+                    return;
+                } else if (mError != null) {
+                    listener.onError(mError);
+                } else {
+                    listener.onComplete(mFile, recordCount, mBytes, duration);
+                }
+            }
+        });
+    }
+
+    static class Record {
+        final int op;
+        /**
+         * µs since the start of the trace
+         */
+        final long time;
+        @Nullable final ReadableArray args;
+        final int saveCount;
+
+        Record(int op, long time, @Nullable ReadableArray args, int saveCount) {
+            this.op = op;
+            this.time = time;
+            this.args = args;
+            this.saveCount = saveCount;
+        }
+    }
+
+    static ArrayList<Record> read(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), CHUNK_SIZE));
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            int version = in.readUnsignedByte();
+            if (!Arrays.equals(magic, MAGIC) || version > VERSION) {
+                throw new IOException(String.format("%s is not a supported trace", file));
+            }
+            ArrayList<Record> records = new ArrayList<>();
+            long time = 0;
+            int op;
+            while ((op = in.read()) != -1) {
+                time += readVarint(in);
+                Object value = readValue(in);
+                if (op == OP_RESTORE) {
+                    records.add(new Record(op, time, null, ((Double) value).intValue()));
+                } else {
+                    records.add(new Record(op, time, (ReadableArray) value, 0));
+                }
+            }
+            return records;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, @Nullable ReadableArray array) throws IOException {
+        if (array == null) {
+            out.writeByte(TYPE_NULL);
+            return;
+        }
+        out.writeByte(TYPE_ARRAY);
+        writeVarint(out, array.size());
+        for (int i = 0; i < array.size(); i++) {
+            switch (array.getType(i)) {
+                case Null: out.writeByte(TYPE_NULL); break;
+                case Boolean: out.writeByte(array.getBoolean(i) ? TYPE_TRUE : TYPE_FALSE); break;
+                case Number: writeNumber(out, array.getDouble(i)); break;
+                case String: writeString(out, array.getString(i)); break;
+                case Array: writeValue(out, array.getArray(i)); break;
+                case Map: writeValue(out, array.getMap(i)); break;
+            }
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, ReadableMap map) throws IOException {
+        ArrayList<String> keys = new ArrayList<>();
+        ReadableMapKeySetIterator iterator = map.keySetIterator();
+        while (iterator.hasNextKey()) {
+            keys.add(iterator.nextKey());
+        }
+        out.writeByte(TYPE_MAP);
+        writeVarint(out, keys.size());
+        for (String key: keys) {
+            writeUtf8(out, key);
+            switch (map.getType(key)) {
+                case Null: out.writeByte(TYPE_NULL); break;
+                case Boolean: out.writeByte(map.getBoolean(key) ? TYPE_TRUE : TYPE_FALSE); break;
+                case Number: writeNumber(out, map.getDouble(key)); break;
+                case String: writeString(out, map.getString(key)); break;
+                case Array: writeValue(out, map.getArray(key)); break;
+                case Map: writeValue(out, map.getMap(key)); break;
+            }
+        }
+    }
+
+    private static void writeNumber(DataOutputStream out, double value) throws IOException {
+        out.writeByte(TYPE_NUMBER);
+        out.writeDouble(value);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeByte(TYPE_STRING);
+        writeUtf8(out, value);
+    }
+
+    private static void writeUtf8(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * @return null, a Boolean, Double, String, or a native array or map
+     */
+    @Nullable
+    private static Object readValue(DataInputStream in) throws IOException {
+        int type = in.readUnsignedByte();
+        switch (type) {
+            case TYPE_NULL: return null;
+            case TYPE_FALSE: return false;
+            case TYPE_TRUE: return true;
+            case TYPE_NUMBER: return in.readDouble();
+            case TYPE_STRING: return readString(in);
+            case TYPE_ARRAY: {
+                int size = (int) readVarint(in);
+                WritableArray array = new WritableNativeArray();
+                for (int i = 0; i < size; i++) {
+                    Object value = readValue(in);
+                    if (value == null) array.pushNull();
+                    else if (value instanceof Boolean) array.pushBoolean((Boolean) value);
+                    else if (value instanceof Double) array.pushDouble((Double) value);
+                    else if (value instanceof String) array.pushString((String) value);
+                    else if (value instanceof WritableArray) array.pushArray((WritableArray) value);
+                    else array.pushMap((WritableMap) value);
+                }
+                return array;
+            }
+            case TYPE_MAP: {
+                int size = (int) readVarint(in);
+                WritableMap map = new WritableNativeMap();
+                for (int i = 0; i < size; i++) {
+                    String key = readString(in);
+                    Object value = readValue(in);
+                    if (value == null) map.putNull(key);
+                    else if (value instanceof Boolean) map.putBoolean(key, (Boolean) value);
+                    else if (value instanceof Double) map.putDouble(key, (Double) value);
+                    else if (value instanceof String) map.putString(key, (String) value);
+                    else if (value instanceof WritableArray) map.putArray(key, (WritableArray) value);
+                    else map.putMap(key, (WritableMap) value);
+                }
+                return map;
+            }
+            default:
+                throw new IOException(String.format("bad trace value type %d", type));
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarint(in)];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.read();
+            if (b == -1) throw new EOFException();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
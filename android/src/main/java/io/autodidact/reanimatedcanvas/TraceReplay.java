@@ -0,0 +1,135 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.view.Choreographer;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.JSApplicationIllegalArgumentException;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+import static io.autodidact.reanimatedcanvas.RCanvasManager.TAG;
+
+/**
+ * Feeds a trace recorded by {@link TraceRecorder} back into a canvas, UI thread only.
+ * In realtime mode records are dispatched at their recorded offsets,
+ * otherwise as many records as fit in {@link #FRAME_BUDGET_MS} are dispatched each frame so frames keep being drawn and timed.
+ * A canvas replays one trace at a time and can't record while replaying, see {@link RCanvas#isReplaying}.
+ */
+class TraceReplay {
+
+    interface Listener {
+        /**
+         * @param stats `{ commands, points, duration, commandsPerSecond, pointsPerSecond, frameTime }`
+         */
+        void onComplete(WritableMap stats);
+        void onError(Throwable e);
+    }
+
+    private static final long FRAME_BUDGET_MS = 8;
+
+    private final RCanvasHandler mCanvas;
+    private final ArrayList<TraceRecorder.Record> mRecords;
+    private final boolean mRealtime;
+    private final Listener mListener;
+    private final Choreographer mChoreographer = Choreographer.getInstance();
+    /**
+     * µs between consecutive frames
+     */
+    private final CanvasMetrics.Histogram mFrameTime = new CanvasMetrics.Histogram();
+    private int mNext = 0;
+    private int mPointCount = 0;
+    private long mStart = -1;
+    private long mLastFrame = -1;
+
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            try {
+                step(frameTimeNanos);
+            } catch (Throwable e) {
+                mCanvas.setReplaying(false);
+                mListener.onError(e);
+            }
+        }
+    };
+
+    TraceReplay(RCanvasHandler canvas, ArrayList<TraceRecorder.Record> records, boolean realtime, Listener listener) {
+        mCanvas = canvas;
+        mRecords = records;
+        mRealtime = realtime;
+        mListener = listener;
+    }
+
+    /**
+     * @throws JSApplicationIllegalArgumentException if the canvas is recording a trace or replaying another one
+     */
+    void start() {
+        if (mCanvas.getTraceRecorder() != null) {
+            throw new JSApplicationIllegalArgumentException(String.format(Locale.ENGLISH, "%s can't replay a trace while recording one", TAG));
+        }
+        if (mCanvas.isReplaying()) {
+            throw new JSApplicationIllegalArgumentException(String.format(Locale.ENGLISH, "%s is already replaying a trace", TAG));
+        }
+        mCanvas.setReplaying(true);
+        mChoreographer.postFrameCallback(mFrameCallback);
+    }
+
+    private void step(long frameTimeNanos) {
+        if (mStart == -1) {
+            mStart = frameTimeNanos;
+        } else {
+            mFrameTime.record((frameTimeNanos - mLastFrame) / 1000);
+        }
+        mLastFrame = frameTimeNanos;
+
+        if (mRealtime) {
+            long elapsed = (frameTimeNanos - mStart) / 1000;
+            while (mNext < mRecords.size() && mRecords.get(mNext).time <= elapsed) {
+                dispatch(mRecords.get(mNext++));
+            }
+        } else {
+            long deadline = CanvasMetrics.now() + FRAME_BUDGET_MS * 1000000;
+            while (mNext < mRecords.size()) {
+                dispatch(mRecords.get(mNext++));
+                if (CanvasMetrics.now() >= deadline) break;
+            }
+        }
+
+        if (mNext < mRecords.size()) {
+            mChoreographer.postFrameCallback(mFrameCallback);
+        } else {
+            mCanvas.setReplaying(false);
+            mListener.onComplete(getStats(frameTimeNanos));
+        }
+    }
+
+    private void dispatch(TraceRecorder.Record record) {
+        switch (record.op) {
+            case TraceRecorder.OP_SAVE:
+                mCanvas.save();
+                break;
+            case TraceRecorder.OP_RESTORE:
+                mCanvas.restore(record.saveCount);
+                break;
+            default:
+                if (record.op == RCanvasManager.Commands.DRAW_POINT) {
+                    mPointCount++;
+                }
+                RCanvasManager.handleCommand(mCanvas, record.op, record.args);
+        }
+    }
+
+    private WritableMap getStats(long frameTimeNanos) {
+        long duration = Math.max((frameTimeNanos - mStart) / 1000000, 1);
+        WritableMap out = Arguments.createMap();
+        out.putInt("commands", mRecords.size());
+        out.putInt("points", mPointCount);
+        out.putDouble("duration", duration);
+        out.putDouble("commandsPerSecond", mRecords.size() * 1000.0 / duration);
+        out.putDouble("pointsPerSecond", mPointCount * 1000.0 / duration);
+        out.putMap("frameTime", mFrameTime.toWritableMap());
+        return out;
+    }
+}
@@ -100,6 +100,13 @@ public final class Utility {
         );
     }
 
+    /**
+     * inclusive of all edges, unlike {@link RectF#contains(float, float)}
+     */
+    static boolean contains(RectF rect, PointF point) {
+        return point.x >= rect.left && point.x <= rect.right && point.y >= rect.top && point.y <= rect.bottom;
+    }
+
     @TargetApi(19)
     static Region getViewRegion(View view){
         return new Region(
@@ -0,0 +1,92 @@
+package io.autodidact.reanimatedcanvas;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Versions the scene of a canvas for `getChangesSince`.
+ * The version increases on every change, paths record the version they were added and last modified at,
+ * removed paths leave a tombstone holding the version they were removed at.
+ * Only the latest {@link #MAX_TOMBSTONES} tombstones are kept, changes since an older version can't be diffed and require a reset.
+ * Confined to the UI thread, {@link Tombstones} are immutable and read by snapshots.
+ */
+class VersionLog {
+
+    static final int MAX_TOMBSTONES = 1024;
+
+    static class Tombstones {
+        static final Tombstones EMPTY = new Tombstones(new int[0], new long[0], 0);
+
+        final int[] pathIds;
+        /**
+         * ascending
+         */
+        final long[] versions;
+        /**
+         * tombstones at or below this version were dropped
+         */
+        final long floor;
+
+        Tombstones(int[] pathIds, long[] versions, long floor) {
+            this.pathIds = pathIds;
+            this.versions = versions;
+            this.floor = floor;
+        }
+    }
+
+    private long mVersion = 0;
+    /**
+     * ordered by version
+     */
+    private final LinkedHashMap<Integer, Long> mTombstones = new LinkedHashMap<>();
+    private long mFloor = 0;
+    private Tombstones mSnapshot = Tombstones.EMPTY;
+
+    long getVersion() {
+        return mVersion;
+    }
+
+    long next() {
+        return ++mVersion;
+    }
+
+    /**
+     * @return the version the path was added at
+     */
+    long onAdded(int pathId) {
+        if (mTombstones.remove(pathId) != null) {
+            mSnapshot = null;
+        }
+        return next();
+    }
+
+    void onRemoved(int pathId) {
+        mTombstones.remove(pathId);
+        mTombstones.put(pathId, next());
+        if (mTombstones.size() > MAX_TOMBSTONES) {
+            Iterator<Map.Entry<Integer, Long>> iterator = mTombstones.entrySet().iterator();
+            mFloor = iterator.next().getValue();
+            iterator.remove();
+        }
+        mSnapshot = null;
+    }
+
+    /**
+     * @return an immutable copy, cached until the next tombstone
+     */
+    Tombstones getTombstones() {
+        if (mSnapshot == null) {
+            int[] pathIds = new int[mTombstones.size()];
+            long[] versions = new long[mTombstones.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Long> entry: mTombstones.entrySet()) {
+                pathIds[i] = entry.getKey();
+                versions[i] = entry.getValue();
+                i++;
+            }
+            mSnapshot = new Tombstones(pathIds, versions, mFloor);
+        }
+        return mSnapshot;
+    }
+}
@@ -0,0 +1,299 @@
+package io.autodidact.reanimatedcanvas;
+
+import android.app.Application;
+import android.graphics.PointF;
+
+import com.facebook.react.bridge.CatalystInstance;
+import com.facebook.react.bridge.JavaOnlyArray;
+import com.facebook.react.bridge.JavaOnlyMap;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.queue.MessageQueueThread;
+import com.facebook.react.bridge.queue.ReactQueueConfiguration;
+import com.facebook.react.uimanager.DisplayMetricsHolder;
+import com.facebook.react.uimanager.ReactShadowNode;
+import com.facebook.react.uimanager.ThemedReactContext;
+import com.facebook.react.uimanager.UIImplementation;
+import com.facebook.react.uimanager.UIManagerModule;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Canvas commands on scenes of 200 to 20k strokes, timed and their allocations counted at each size.
+ * Asserts on growth between sizes rather than on absolute budgets: a linear command grows 10x per step, a quadratic one 100x,
+ * so {@link #SLACK} absorbs CI noise while still failing super-linear growth.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 27)
+public class RCanvasScaleTest {
+
+    private static final int[] SIZES = { 200, 2000, 20000 };
+    /**
+     * allowed growth beyond linear between two sizes
+     */
+    private static final double SLACK = 3;
+    /**
+     * each measurement keeps the best of its runs
+     */
+    private static final int RUNS = 3;
+    /**
+     * strokes per `handleUpdate`, kept below {@link PathBuilder#BACKGROUND_POINTS_THRESHOLD} so updates apply synchronously
+     */
+    private static final int UPDATE_CHUNK = 100;
+    private static final int PROBES = 200;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private interface Command {
+        /**
+         * @param canvas holds a scene of `size` strokes with ids 1..size, unless the command builds it
+         */
+        void run(RCanvasHandler canvas, int size);
+    }
+
+    private ThemedReactContext mContext;
+    private UIImplementation mUIImplementation;
+
+    @Before
+    public void setUp() {
+        Application application = RuntimeEnvironment.application;
+        DisplayMetricsHolder.initDisplayMetricsIfNotInitialized(application);
+
+        MessageQueueThread nativeModulesThread = mock(MessageQueueThread.class);
+        when(nativeModulesThread.isOnThread()).thenReturn(true);
+        ReactQueueConfiguration queues = mock(ReactQueueConfiguration.class);
+        when(queues.getNativeModulesQueueThread()).thenReturn(nativeModulesThread);
+        mUIImplementation = mock(UIImplementation.class);
+        UIManagerModule uiManager = mock(UIManagerModule.class);
+        when(uiManager.getUIImplementation()).thenReturn(mUIImplementation);
+        CatalystInstance catalystInstance = mock(CatalystInstance.class);
+        when(catalystInstance.getReactQueueConfiguration()).thenReturn(queues);
+        when(catalystInstance.getNativeModule(UIManagerModule.class)).thenReturn(uiManager);
+
+        ReactApplicationContext reactContext = new ReactApplicationContext(application);
+        reactContext.initializeWithInstance(catalystInstance);
+        mContext = new ThemedReactContext(reactContext, application);
+    }
+
+    private RCanvasHandler createCanvas() {
+        return new RCanvasHandler(mContext, mock(RCanvasEventDispatcher.class));
+    }
+
+    private static JavaOnlyMap point(float x, float y) {
+        return JavaOnlyMap.of("x", x, "y", y);
+    }
+
+    /**
+     * three point strokes with ids [from, to), spread over a 1000x1000 canvas
+     */
+    private static JavaOnlyArray strokes(int from, int to) {
+        JavaOnlyArray update = new JavaOnlyArray();
+        for (int id = from; id < to; id++) {
+            float x = (id * 37) % 1000, y = (id * 53) % 1000;
+            JavaOnlyMap value = JavaOnlyMap.of(
+                    "strokeColor", 0xff000000,
+                    "strokeWidth", 4,
+                    "points", JavaOnlyArray.of(point(x, y), point(x + 10, y + 5), point(x + 20, y))
+            );
+            update.pushMap(JavaOnlyMap.of("id", id, "value", value));
+        }
+        return update;
+    }
+
+    private static void fill(RCanvasHandler canvas, int size) {
+        for (int from = 1; from <= size; from += UPDATE_CHUNK) {
+            canvas.handleUpdate(strokes(from, Math.min(from + UPDATE_CHUNK, size + 1)));
+        }
+    }
+
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * runs `command` at every size, logs and asserts its time and allocation growth
+     * @param fill whether the command runs on a filled scene
+     */
+    private void assertScales(String name, boolean fill, Command command) {
+        long[] nanos = new long[SIZES.length];
+        long[] bytes = new long[SIZES.length];
+        // warms up the JIT on the smallest scene
+        for (int run = 0; run < RUNS; run++) {
+            RCanvasHandler canvas = createCanvas();
+            if (fill) fill(canvas, SIZES[0]);
+            command.run(canvas, SIZES[0]);
+            canvas.tearDown();
+        }
+        for (int i = 0; i < SIZES.length; i++) {
+            nanos[i] = Long.MAX_VALUE;
+            bytes[i] = Long.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                RCanvasHandler canvas = createCanvas();
+                if (fill) fill(canvas, SIZES[i]);
+                long allocated = allocatedBytes();
+                long start = System.nanoTime();
+                command.run(canvas, SIZES[i]);
+                nanos[i] = Math.min(nanos[i], System.nanoTime() - start);
+                bytes[i] = Math.min(bytes[i], allocatedBytes() - allocated);
+                // unregisters the canvas from the application so the scene can be collected
+                canvas.tearDown();
+            }
+            System.out.println(String.format(Locale.ENGLISH, "%s %d strokes: %.2fms, %dKB allocated",
+                    name, SIZES[i], nanos[i] / 1e6, bytes[i] / 1024));
+        }
+        assertLinear(name, "time", nanos);
+        assertLinear(name, "allocations", bytes);
+    }
+
+    private static void assertLinear(String name, String what, long[] values) {
+        for (int i = 1; i < SIZES.length; i++) {
+            double linear = SIZES[i] / (double) SIZES[i - 1];
+            double growth = values[i] / (double) Math.max(values[i - 1], 1);
+            assertTrue(String.format(Locale.ENGLISH, "%s %s grew %.1fx from %d to %d strokes, linear is %.0fx",
+                    name, what, growth, SIZES[i - 1], SIZES[i], linear), growth <= linear * SLACK);
+        }
+    }
+
+    private static void assertIndices(RCanvas canvas) {
+        ArrayList<RPath> paths = canvas.paths();
+        for (int i = 0; i < paths.size(); i++) {
+            assertEquals(i, canvas.getPathIndex(paths.get(i).getPathId()));
+        }
+    }
+
+    @Test
+    public void handleUpdate() {
+        assertScales("handleUpdate", false, new Command() {
+            @Override
+            public void run(RCanvasHandler canvas, int size) {
+                fill(canvas, size);
+                assertEquals(size - 1, canvas.getPathIndex(size));
+            }
+        });
+    }
+
+    @Test
+    public void saveRestore() {
+        assertScales("save/restore", true, new Command() {
+            @Override
+            public void run(RCanvasHandler canvas, int size) {
+                int saveCount = canvas.save();
+                canvas.restore(saveCount);
+            }
+        });
+    }
+
+    @Test
+    public void clear() {
+        assertScales("clear", true, new Command() {
+            @Override
+            public void run(RCanvasHandler canvas, int size) {
+                canvas.clear();
+                assertEquals(-1, canvas.getPathIndex(1));
+            }
+        });
+    }
+
+    @Test
+    public void removePaths() {
+        assertScales("removePaths", true, new Command() {
+            @Override
+            public void run(RCanvasHandler canvas, int size) {
+                ArrayList<RPath> paths = new ArrayList<>();
+                for (int id = 1; id <= size; id += 2) {
+                    paths.add(canvas.getPath(id));
+                }
+                canvas.removePaths(paths);
+                assertEquals(-1, canvas.getPathIndex(1));
+                assertEquals(0, canvas.getPathIndex(2));
+                assertIndices(canvas);
+            }
+        });
+    }
+
+    @Test
+    public void isPointOnPath() {
+        assertScales("isPointOnPath", true, new Command() {
+            @Override
+            public void run(RCanvasHandler canvas, int size) {
+                IntersectionHelper helper = canvas.getIntersectionHelper();
+                for (int i = 0; i < PROBES; i++) {
+                    int id = 1 + (i * 7919) % size;
+                    float x = (id * 37) % 1000, y = (id * 53) % 1000;
+                    assertTrue(helper.isPointOnPath(new PointF(x + 10, y + 5), id));
+                }
+            }
+        });
+    }
+
+    @Test
+    public void indicesFollowRemoveAndInsert() {
+        RCanvasHandler canvas = createCanvas();
+        fill(canvas, 10000);
+        ArrayList<RPath> paths = new ArrayList<>();
+        for (int id = 7; id <= 10000; id += 97) {
+            paths.add(canvas.getPath(id));
+        }
+        canvas.removePaths(paths);
+        assertIndices(canvas);
+
+        RPath below = canvas.getPath(500);
+        RPath inserted = canvas.insertPath(20001, below);
+        assertEquals(canvas.getPathIndex(500) + 1, canvas.getPathIndex(inserted.getPathId()));
+        assertIndices(canvas);
+
+        canvas.clear();
+        assertEquals(-1, canvas.getPathIndex(500));
+        fill(canvas, 10);
+        assertIndices(canvas);
+    }
+
+    /**
+     * paths added by React are stubbed in the shadow tree once removed, adjacent ones included
+     */
+    @Test
+    public void removePaths_resolvesEveryShadowNode() {
+        RCanvasHandler canvas = createCanvas();
+        fill(canvas, 10);
+        int[] tags = { 101, 102, 103, 104 };
+        ArrayList<RPath> removed = new ArrayList<>();
+        for (int tag: tags) {
+            RPath path = new RPath(mContext);
+            path.setId(tag);
+            path.setPathId(tag);
+            canvas.addView(path);
+            canvas.finalizePathAddition(path);
+            // detached shadow nodes are resolved but left as they are
+            when(mUIImplementation.resolveShadowNode(tag)).thenReturn(mock(ReactShadowNode.class));
+            if (tag == 102 || tag == 103) {
+                removed.add(path);
+            }
+        }
+
+        canvas.removePaths(removed);
+
+        verify(mUIImplementation).resolveShadowNode(102);
+        verify(mUIImplementation).resolveShadowNode(103);
+        verify(mUIImplementation, never()).resolveShadowNode(101);
+        verify(mUIImplementation, never()).resolveShadowNode(104);
+        assertEquals(-1, canvas.getPathIndex(102));
+        assertEquals(-1, canvas.getPathIndex(103));
+        assertIndices(canvas);
+    }
+}
@@ -10,6 +10,12 @@ import { generatePathId, processColorProp, useEventProp, useHitSlop, useRefGette
 
 const RNativeCanvas = Animated.createAnimatedComponent(requireNativeComponent(VIEW_MANAGER));
 
+Animated.addWhitelistedNativeProps({
+  viewportScale: true,
+  viewportTranslateX: true,
+  viewportTranslateY: true
+});
+
 function RCanvasBase(props: RCanvasProperties, forwardedRef: Ref<RCanvasRef>) {
   //const [ignored, forceUpdate] = useReducer<never>((x: number) => x + 1, 0);
   const hitSlop = useHitSlop(props.hitSlop);
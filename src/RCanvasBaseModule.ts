@@ -1,7 +1,7 @@
 import _ from 'lodash';
 import { MutableRefObject, useMemo } from 'react';
 import { findNodeHandle, NativeModules, Platform, processColor, UIManager } from 'react-native';
-import { Commands, Point, RCanvasRef, RPathData, RPathAttributes, PathChangeData } from './types';
+import { BinaryExportResult, BinaryImportResult, Commands, Op, OpType, ImageExportOptions, ImageExportResult, SvgExportResult, StreamImportResult, LayerStats, CanvasMetrics, TraceResult, ReplayResult, ImportStreamPath, Point, RCanvasRef, RPathData, RPathAttributes, PathChangeData, RPathFragment, PathCursorChunk, SceneChanges } from './types';
 import { processColorProp, parseHitSlop } from './util';
 
 export const VIEW_MANAGER = 'ReanimatedCanvasManager';
@@ -47,6 +47,39 @@ export function update(tag: number, updates: PathChangeData[]) {
   dispatchCommand(tag, Commands.update, [parsedUpdates]);
 }
 
+export function applyOps(tag: number, ops: Op[], origin?: string) {
+  const parsedOps = _.map(ops, (op) => {
+    if (op[1] === OpType.add) {
+      const [seq, type, id, strokeColor, strokeWidth, points] = op as any[];
+      return [seq, type, id, processColorProp(strokeColor), strokeWidth, points];
+    } else if (op[1] === OpType.set) {
+      const [seq, type, id, attr] = op as [number, OpType, number, RPathAttributes];
+      const value = _.clone(attr);
+      if (typeof value.strokeColor === 'string') value.strokeColor = processColor(value.strokeColor);
+      if (value.hitSlop !== undefined && value.hitSlop !== null) value.hitSlop = parseHitSlop(value.hitSlop);
+      return [seq, type, id, value];
+    }
+    return op;
+  });
+  dispatchCommand(tag, Commands.applyOps, [origin === undefined ? null : origin, parsedOps]);
+}
+
+/**
+ * `queue` methods bypass the UI batch, samples are drained natively once per frame
+ * Android only
+ */
+export function queueAlloc(tag: number, pathId: number, strokeColor: any, strokeWidth?: number) {
+  NativeModuleManager.queueAlloc(tag, pathId, processColorProp(strokeColor), strokeWidth);
+}
+
+export function queuePoint(tag: number, pathId: number, point: Point) {
+  NativeModuleManager.queuePoint(tag, pathId, point.x, point.y);
+}
+
+export function queueEndInteraction(tag: number, pathId: number) {
+  NativeModuleManager.queueEndInteraction(tag, pathId);
+}
+
 export function setPathAttributes(tag: number, pathId: number, attr: RPathAttributes) {
   if (typeof attr.strokeColor === 'string') {
     attr.strokeColor = processColor(attr.strokeColor);
@@ -104,6 +137,174 @@ export function restore<R extends void, E extends Error>(
   return promisify(nativeMethod, onSuccess, onFailure);
 }
 
+/**
+ * retrieves a range of a path's points
+ * @param maxPoints pass a negative value to retrieve all points from `fromPointIndex`
+ */
+export function getPathRange(handle: number, pathId: number, fromPointIndex: number = 0, maxPoints: number = -1): Promise<RPathFragment> {
+  return new Promise((resolve, reject) => {
+    NativeModuleManager.getPathRange(handle, pathId, fromPointIndex, maxPoints, resolve, reject);
+  });
+}
+
+export function getChangesSince(handle: number, version: number = 0): Promise<SceneChanges> {
+  return new Promise((resolve, reject) => {
+    NativeModuleManager.getChangesSince(handle, version, resolve, reject);
+  });
+}
+
+/**
+ * opens a cursor over a snapshot of the canvas' paths, use `readPathCursor` to retrieve bounded chunks
+ * cursors left unread for a minute, or whose canvas unmounts, are closed
+ * @param pathIds pass null to iterate all paths
+ * @param maxPoints max number of points per chunk
+ */
+export function openPathCursor(handle: number, pathIds: number[] | null = null, maxPoints: number = 5000): Promise<number> {
+  return new Promise((resolve, reject) => {
+    NativeModuleManager.openPathCursor(handle, pathIds, maxPoints, resolve, reject);
+  });
+}
+
+/**
+ * the cursor is closed natively once the last chunk has been read
+ */
+export function readPathCursor(cursorId: number): Promise<PathCursorChunk> {
+  return new Promise((resolve, reject) => {
+    NativeModuleManager.readPathCursor(cursorId, resolve, reject);
+  });
+}
+
+export function closePathCursor(cursorId: number) {
+  NativeModuleManager.closePathCursor(cursorId);
+}
+
+/**
+ * writes all paths natively to a compact binary file
+ * Android only
+ */
+export function exportBinary(handle: number, filePath: string): Promise<BinaryExportResult> {
+  return new Promise((resolve, reject) => {
+    NativeModuleManager.exportBinary(handle, filePath, resolve, reject);
+  });
+}
+
+/**
+ * loads a file written by `exportBinary`, adding paths or replacing existing ones with the same id
+ * Android only
+ */
+export function importBinary(handle: number, filePath: string): Promise<BinaryImportResult> {
+  return new Promise((resolve, reject) => {
+    NativeModuleManager.importBinary(handle, filePath, resolve, reject);
+  });
+}
+
+/**
+ * loads a file written by `exportBinary`, rendering paths progressively while the file is decoded
+ * progress is reported by `onImportProgress`
+ * Android only
+ */
+export function streamBinary(handle: number, filePath: string): Promise<StreamImportResult> {
+  return new Promise((resolve, reject) => {
+    NativeModuleManager.streamBinary(handle, filePath, resolve, reject);
+  });
+}
+
+/**
+ * opens an import stream, paths are rendered progressively as they are written
+ * resolves the import id
+ * Android only
+ */
+export function openImportStream(handle: number): Promise<number> {
+  return new Promise((resolve, reject) => {
+    NativeModuleManager.openImportStream(handle, resolve, reject);
+  });
+}
+
+/**
+ * resolves once the paths are queued, rejects if the import stream is unknown or closed
+ * at most 1024 paths are queued natively, awaiting each write keeps a fast writer from outrunning the canvas
+ * a failure closes the import stream with an error
+ */
+export function writeImportStream(importId: number, paths: ImportStreamPath[]): Promise<void> {
+  return new Promise((resolve, reject) => {
+    NativeModuleManager.writeImportStream(importId, paths, resolve, reject);
+  });
+}
+
+export function closeImportStream(importId: number): Promise<StreamImportResult> {
+  return new Promise((resolve, reject) => {
+    NativeModuleManager.closeImportStream(importId, resolve, reject);
+  });
+}
+
+/**
+ * renders the paths natively into an image file, off the UI thread
+ * Android only
+ */
+export function exportImage(handle: number, options: ImageExportOptions = {}): Promise<ImageExportResult> {
+  return new Promise((resolve, reject) => {
+    NativeModuleManager.exportImage(handle, options, resolve, reject);
+  });
+}
+
+/**
+ * streams the paths natively as SVG to a file, off the UI thread
+ * erasers are exported as masks
+ * Android only
+ */
+export function exportSvg(handle: number, options: { filePath?: string } = {}): Promise<SvgExportResult> {
+  return new Promise((resolve, reject) => {
+    NativeModuleManager.exportSvg(handle, options, resolve, reject);
+  });
+}
+
+/**
+ * hit/miss counters of the committed layer, see `autoLayer`
+ * Android only
+ */
+export function getLayerStats(handle: number): Promise<LayerStats> {
+  return new Promise((resolve, reject) => {
+    NativeModuleManager.getLayerStats(handle, resolve, reject);
+  });
+}
+
+/**
+ * counters and latency histograms of the canvas, see `onMetrics`
+ * Android only
+ */
+export function getMetrics(handle: number): Promise<CanvasMetrics> {
+  return new Promise((resolve, reject) => {
+    NativeModuleManager.getMetrics(handle, resolve, reject);
+  });
+}
+
+/**
+ * records the commands the canvas receives into a trace file, resolves its path
+ * Android only
+ */
+export function startTrace(handle: number, filePath?: string): Promise<string> {
+  return new Promise((resolve, reject) => {
+    NativeModuleManager.startTrace(handle, filePath || null, resolve, reject);
+  });
+}
+
+export function stopTrace(handle: number): Promise<TraceResult> {
+  return new Promise((resolve, reject) => {
+    NativeModuleManager.stopTrace(handle, resolve, reject);
+  });
+}
+
+/**
+ * feeds a trace recorded by `startTrace` back into the canvas
+ * rejects while the canvas is recording a trace, recording is rejected while replaying
+ * Android only
+ */
+export function replayTrace(handle: number, filePath: string, realtime = false): Promise<ReplayResult> {
+  return new Promise((resolve, reject) => {
+    NativeModuleManager.replayTrace(handle, filePath, realtime, resolve, reject);
+  });
+}
+
 function promisify<R, E>(method: (onSuccess: (result: R) => void, onFailure: (error: E) => void) => void, onSuccess?: (result: R) => void, onFailure?: (error: E) => void) {
   if (onSuccess && onFailure) {
     return method(onSuccess, onFailure);
@@ -117,11 +318,11 @@ function promisify<R, E>(method: (onSuccess: (result: R) => void, onFailure: (er
 }
 
 type ModuleMethods = 'isPointOnPath' | 'save' | 'restore';
-type ViewManagerCommands = 'dispatchCommand' | 'startPath' | 'addPoint' | 'endPath' | 'clear' | 'update' | 'setPathAttributes';
+type ViewManagerCommands = 'dispatchCommand' | 'startPath' | 'addPoint' | 'endPath' | 'clear' | 'update' | 'applyOps' | 'setPathAttributes';
 
 export function useModule(ref: MutableRefObject<RCanvasRef>)/*: Pick<RCanvasRef, ModuleMethods | ViewManagerCommands>*/ {
   return useMemo(() => {
-    const methods = { dispatchCommand, alloc, drawPoint, endInteraction, clear, update, setPathAttributes, isPointOnPath, save, restore };
+    const methods = { dispatchCommand, alloc, drawPoint, endInteraction, queueAlloc, queuePoint, queueEndInteraction, clear, update, applyOps, setPathAttributes, isPointOnPath, getPathRange, getChangesSince, openPathCursor, exportBinary, importBinary, streamBinary, openImportStream, exportImage, exportSvg, getLayerStats, getMetrics, startTrace, stopTrace, replayTrace, save, restore };
     //@ts-ignore
     return _.mapValues(methods, (m) => (...args: any[]) => m(findNodeHandle(ref.current), ...args));
   }, [ref]);
@@ -25,6 +25,21 @@ export const endInteraction = proc((tag, id) => {
   return safeDispatch(tag, dispatch(VIEW_MANAGER, Commands.endInteraction, tag, id));
 });
 
+/**
+ * `queue` methods bypass the UI batch, samples are drained natively once per frame
+ */
+export const queueAlloc = proc((tag, id, strokeColor, strokeWidth) => {
+  return safeDispatch(tag, invoke(MODULE, Methods.queueAlloc, tag, id, strokeColor, strokeWidth));
+});
+
+export const queuePoint = proc((tag, id, x, y) => {
+  return safeDispatch(tag, invoke(MODULE, Methods.queuePoint, tag, id, x, y));
+});
+
+export const queueEndInteraction = proc((tag, id) => {
+  return safeDispatch(tag, invoke(MODULE, Methods.queueEndInteraction, tag, id));
+});
+
 export const setPathColor = proc((tag, id, strokeColor) => {
   return safeDispatch(tag, dispatch(VIEW_MANAGER, Commands.setAttributes, tag, id, map({ strokeColor })));
 });
@@ -16,14 +16,36 @@ export enum Commands {
   endInteraction,
   clear,
   update,
-  setAttributes
+  setAttributes,
+  applyOps
 }
 
 export enum Methods {
   isPointOnPath = 'isPointOnPath',
   save = 'save',
   restore = 'restore',
-  getPaths = 'getPaths'
+  getPaths = 'getPaths',
+  getPathRange = 'getPathRange',
+  getChangesSince = 'getChangesSince',
+  openPathCursor = 'openPathCursor',
+  readPathCursor = 'readPathCursor',
+  closePathCursor = 'closePathCursor',
+  exportBinary = 'exportBinary',
+  importBinary = 'importBinary',
+  exportImage = 'exportImage',
+  exportSvg = 'exportSvg',
+  queueAlloc = 'queueAlloc',
+  queuePoint = 'queuePoint',
+  queueEndInteraction = 'queueEndInteraction',
+  streamBinary = 'streamBinary',
+  openImportStream = 'openImportStream',
+  writeImportStream = 'writeImportStream',
+  closeImportStream = 'closeImportStream',
+  getLayerStats = 'getLayerStats',
+  getMetrics = 'getMetrics',
+  startTrace = 'startTrace',
+  stopTrace = 'stopTrace',
+  replayTrace = 'replayTrace'
 }
 
 export type Point = {
@@ -52,12 +74,258 @@ export interface RPathAttributes extends RPathDataBase {
   hitSlop?: ExtendedInsets | number
 }
 
+export interface RPathFragment extends RPathData {
+  pointCount: number,
+  fromPointIndex: number,
+  /**
+   * -1 once the last point has been retrieved
+   */
+  nextPointIndex: number,
+  points: Point[]
+}
+
+export interface PathCursorChunk {
+  paths: RPathFragment[],
+  done: boolean
+}
+
+export interface SceneChanges {
+  /**
+   * pass to the next `getChangesSince` call
+   */
+  version: number,
+  /**
+   * set when the changes since the requested version are no longer known,
+   * `added` then lists every path and the previous copy of the scene should be replaced
+   */
+  reset: boolean,
+  added: RPathData[],
+  changed: RPathData[],
+  /**
+   * ids of removed paths
+   */
+  removed: number[]
+}
+
+export interface BinaryExportResult {
+  paths: number,
+  points: number,
+  bytes: number,
+  /**
+   * ms
+   */
+  duration: number
+}
+
+export type BinaryImportResult = Omit<BinaryExportResult, 'bytes'>;
+
+export type StreamImportResult = BinaryImportResult & {
+  importId: number
+}
+
+export interface ImportStreamPath {
+  id: number,
+  strokeColor: number,
+  strokeWidth: number,
+  points: Point[]
+}
+
+export interface LayerStats {
+  /**
+   * frames drawn from the cached committed layer
+   */
+  hits: number,
+  /**
+   * frames that had to rebuild the committed layer
+   */
+  misses: number,
+  hitRate: number,
+  bytes: number
+}
+
+export interface MetricsHistogram {
+  count: number,
+  mean: number,
+  max: number,
+  /**
+   * percentiles are rounded up to the next power of 2
+   */
+  p50: number,
+  p95: number,
+  p99: number
+}
+
+export interface CanvasMetrics {
+  /**
+   * commands received by the view manager, keyed by command name
+   */
+  commands: { [command: string]: number },
+  pointsIngested: number,
+  changeEvents: number,
+  /**
+   * µs
+   */
+  drawTime: MetricsHistogram,
+  /**
+   * µs
+   */
+  hitTestTime: MetricsHistogram,
+  /**
+   * µs spent serializing `onChange` events
+   */
+  changeSerializationTime: MetricsHistogram,
+  /**
+   * points serialized per `onChange` event
+   */
+  changePayloadSize: MetricsHistogram,
+  strokes: number,
+  /**
+   * committed strokes whose points are stored quantized and delta encoded
+   */
+  compactedStrokes: number,
+  points: number,
+  /**
+   * retained by points, estimated for strokes that are not compacted, including `snapshotBytes`
+   */
+  pointBytes: number,
+  /**
+   * retained by snapshots taken for queries beyond the strokes' own points, e.g. copies of strokes being drawn
+   */
+  snapshotBytes: number,
+  layer: LayerStats,
+  /**
+   * storage of compacted points outside of the java heap, see `offHeapPoints`
+   */
+  arena: {
+    slabs: number,
+    /**
+     * reserved by the slabs
+     */
+    bytes: number,
+    /**
+     * allocated to compacted strokes, rounded up to their size class, including freed strokes still read by snapshots
+     */
+    liveBytes: number,
+    /**
+     * freed and ready for reuse
+     */
+    freeBytes: number
+  },
+  /**
+   * memory trims received by the canvas, keyed by trim level:
+   * `runningModerate`, `runningLow`, `runningCritical`, `uiHidden`, `background`, `moderate`, `complete` or `lowMemory`
+   */
+  memoryTrims: { [level: string]: number },
+  lastMemoryTrim: string | null,
+  /**
+   * interned stroke styles, shared by all canvases
+   */
+  styles: number,
+  /**
+   * ms
+   */
+  uptime: number
+}
+
+export type MetricsEvent = NativeSyntheticEvent<CanvasMetrics>
+
+export interface TraceResult {
+  filePath: string,
+  /**
+   * recorded commands, including save and restore
+   */
+  commands: number,
+  bytes: number,
+  duration: number
+}
+
+export interface ReplayResult {
+  commands: number,
+  points: number,
+  duration: number,
+  commandsPerSecond: number,
+  pointsPerSecond: number,
+  /**
+   * µs between frames drawn during the replay
+   */
+  frameTime: MetricsHistogram
+}
+
+export interface ImageExportOptions {
+  /**
+   * defaults to `png`, png exports are streamed so their size isn't limited by memory
+   */
+  format?: 'png' | 'jpeg' | 'jpg' | 'webp',
+  /**
+   * 0 - 1, ignored by png
+   */
+  quality?: number,
+  /**
+   * output pixels per canvas pixel, defaults to 1
+   */
+  scale?: number,
+  /**
+   * the area to export, defaults to the entire canvas
+   */
+  region?: { x: number, y: number, width: number, height: number },
+  /**
+   * defaults to `true`, ignored by jpeg which is always rendered on white
+   */
+  transparent?: boolean,
+  /**
+   * defaults to a temporary file in the app's cache directory
+   */
+  filePath?: string
+}
+
+export interface ImageExportResult {
+  filePath: string,
+  width: number,
+  height: number,
+  /**
+   * ms
+   */
+  duration: number
+}
+
+export interface SvgExportResult {
+  filePath: string,
+  /**
+   * ms
+   */
+  duration: number
+}
+
 export type IntersectionResponse = number[];
 
 export interface NativeStrokeEvent extends Point {
   id: number,
 }
 
+export enum OpType {
+  /**
+   * adds a path, or replaces the path with the same id
+   */
+  add = 0,
+  append,
+  /**
+   * accepts `RPathAttributes`
+   */
+  set,
+  remove
+}
+
+/**
+ * an entry of an operation log, see `applyOps`:
+ * `[seq, add, id, strokeColor, strokeWidth, points]`, `[seq, append, id, points]`, `[seq, set, id, attr]` or `[seq, remove, id]`
+ * points are interleaved as `[x0, y0, x1, y1, ...]`
+ */
+export type Op =
+  [number, OpType.add, number, any, number, number[]] |
+  [number, OpType.append, number, number[]] |
+  [number, OpType.set, number, RPathAttributes] |
+  [number, OpType.remove, number];
+
 export interface PathChangeData {
   id: number,
   /**
@@ -77,11 +345,49 @@ export interface NativeChangeEvent {
   removed: number[]
 }
 
+export interface NativeUpdateCompleteEvent {
+  paths: number,
+  points: number,
+  /**
+   * ms spent building paths off the UI thread
+   */
+  buildTime: number
+}
+
+export interface NativeImportProgressEvent {
+  importId: number,
+  paths: number,
+  points: number,
+  pathsPerSecond: number,
+  pointsPerSecond: number,
+  /**
+   * ms since the import started
+   */
+  duration: number,
+  done: boolean,
+  /**
+   * set if the import failed, paths added so far are kept
+   */
+  error?: string
+}
+
 export type NativeTouchEvent = IntersectionResponse & Point;
 export type StrokeStartEvent = NativeSyntheticEvent<RPathData>;
 export type StrokeEvent = NativeSyntheticEvent<NativeStrokeEvent>;
 export type StrokeEndEvent = NativeSyntheticEvent<RPathData>;
 export type ChangeEvent = NativeSyntheticEvent<NativeChangeEvent>
+export interface NativeCanvasErrorEvent {
+  /**
+   * `update` for a background `update`, `path` for a path built in the background, `sample` for a sample offered off the JS thread
+   */
+  source: string,
+  pathId?: number,
+  message: string
+}
+
+export type CanvasErrorEvent = NativeSyntheticEvent<NativeCanvasErrorEvent>
+export type UpdateCompleteEvent = NativeSyntheticEvent<NativeUpdateCompleteEvent>
+export type ImportProgressEvent = NativeSyntheticEvent<NativeImportProgressEvent>
 
 interface NativeTouchProps {
   /** set to true to handle touches with the native driver */
@@ -139,6 +445,63 @@ export interface RPathProps extends RCanvasCommonProps {
 
 export interface RCanvasProps extends RCanvasCommonProps {
   onChange?: (e: ChangeEvent) => void,
+  /**
+   * fires after a large `update` has been built off the UI thread and applied
+   * smaller updates are applied synchronously and don't fire this event
+   */
+  onUpdateComplete?: (e: UpdateCompleteEvent) => void,
+  /**
+   * fires once per frame while a streaming import adds paths
+   */
+  onImportProgress?: (e: ImportProgressEvent) => void,
+  /**
+   * fires when native work that has no promise to reject fails, e.g. a background `update`
+   * Android only
+   */
+  onCanvasError?: (e: CanvasErrorEvent) => void,
+  /**
+   * fires every `metricsInterval` ms
+   * Android only
+   */
+  onMetrics?: (e: MetricsEvent) => void,
+  /**
+   * ms between `onMetrics` events, defaults to 0 which disables them
+   * Android only
+   */
+  metricsInterval?: number,
+  /**
+   * zooms the canvas' content, accepts reanimated values, must be positive
+   * paths are stored in document space, touches and `isPointOnPath` are mapped into it
+   * only visible paths are drawn
+   * Android only
+   */
+  viewportScale?: Animated.Adaptable<number>,
+  /**
+   * pans the canvas' content, in view space, accepts reanimated values
+   * Android only
+   */
+  viewportTranslateX?: Animated.Adaptable<number>,
+  viewportTranslateY?: Animated.Adaptable<number>,
+  /**
+   * caches committed paths in a bitmap while paths are being drawn so only live paths are redrawn each frame
+   * defaults to `true`, check `getLayerStats` to see whether it helps on a given device
+   * Android only
+   */
+  autoLayer?: boolean,
+  /**
+   * stores the compacted points of committed paths in direct buffers outside of the java heap,
+   * so heap usage doesn't grow with the document, defaults to `false`
+   * Android only
+   */
+  offHeapPoints?: boolean,
+  /**
+   * how paths colored `transparent` erase
+   * `pixel` (default) clears pixels, the eraser stays in the scene
+   * `object` removes every path the eraser touches, then removes the eraser
+   * `vector` cuts the eraser's footprint out of the paths it crosses, splitting them into new paths, then removes the eraser
+   * Android only
+   */
+  eraserMode?: 'pixel' | 'object' | 'vector',
   /**
    * controls whether to draw indicators of the paths' hitSlops when calling `isPointOnPath`
    * defaults to `false`, only works in DEBUG mode.
@@ -188,14 +551,106 @@ export type RCanvasRef = {
    */
   endInteraction(id: number): void
 
+  /**
+   * `queue` methods mirror `alloc`, `drawPoint` and `endInteraction`
+   * but bypass the UI batch, samples are drained natively once per frame
+   * if more than 4096 samples are pending, samples are dropped and reported by `onCanvasError` with `source: 'sample'`
+   * Android only
+   */
+  queueAlloc(id: number, strokeColor?: string | number, strokeWidth?: number): void
+  queuePoint(id: number, point: Point): void
+  queueEndInteraction(id: number): void
+
   clear(): void
 
   getPaths(): RPathData[]
 
   getPath(id: number): RPathData | null
 
+  /**
+   * retrieves a range of a path's points natively
+   * @param maxPoints pass a negative value to retrieve all points from `fromPointIndex`
+   */
+  getPathRange(id: number, fromPointIndex?: number, maxPoints?: number): Promise<RPathFragment>
+
+  /**
+   * retrieves only the paths added, changed or removed after `version`, for incremental sync and autosave
+   * @param version the `version` of the previous result, defaults to 0 which retrieves every path
+   * Android only
+   */
+  getChangesSince(version?: number): Promise<SceneChanges>
+
+  /**
+   * opens a native cursor over a snapshot of the paths, read chunks with `RCanvasBaseModule.readPathCursor`
+   */
+  openPathCursor(ids?: number[] | null, maxPoints?: number): Promise<number>
+
+  /**
+   * natively writes all paths to a compact binary file
+   */
+  exportBinary(filePath: string): Promise<BinaryExportResult>
+
+  /**
+   * natively loads a file written by `exportBinary`
+   */
+  importBinary(filePath: string): Promise<BinaryImportResult>
+
+  /**
+   * natively loads a file written by `exportBinary`, rendering paths progressively while the file is decoded
+   * progress is reported by `onImportProgress`
+   */
+  streamBinary(filePath: string): Promise<StreamImportResult>
+
+  /**
+   * opens a native import stream, write paths with `RCanvasBaseModule.writeImportStream`
+   * paths are rendered progressively as they are written
+   */
+  openImportStream(): Promise<number>
+
+  /**
+   * natively renders the paths into an image file, off the UI thread
+   */
+  exportImage(options?: ImageExportOptions): Promise<ImageExportResult>
+
+  /**
+   * natively streams the paths as SVG to a file, off the UI thread
+   */
+  exportSvg(options?: { filePath?: string }): Promise<SvgExportResult>
+
+  /**
+   * hit/miss counters of the committed layer, see `autoLayer`
+   */
+  getLayerStats(): Promise<LayerStats>
+
+  /**
+   * counters and latency histograms of the canvas, see `onMetrics`
+   */
+  getMetrics(): Promise<CanvasMetrics>
+
+  /**
+   * records the commands the canvas receives, along with save and restore, into a compact trace file
+   * samples queued by `queuePoint` are not recorded
+   * resolves the trace's file path, defaults to a temporary file
+   */
+  startTrace(filePath?: string): Promise<string>
+
+  stopTrace(): Promise<TraceResult>
+
+  /**
+   * feeds a recorded trace back into the canvas
+   * @param realtime dispatches commands at their recorded times, defaults to `false` which replays as fast as frames allow
+   */
+  replayTrace(filePath: string, realtime?: boolean): Promise<ReplayResult>
+
   update(paths: PathChangeData[]): void
 
+  /**
+   * applies an ordered operation log, e.g. remote edits of a shared drawing, with a single `onChange` per frame
+   * ops at or below the last applied `seq` of their `origin` are skipped, so logs may be resent or overlap
+   * Android only
+   */
+  applyOps(ops: Op[], origin?: string): void
+
   setPathAttributes(id: number, attr: { width: number, color: string | number }): void
 
   dispatchCommand(command: Commands, data?: any[]): void